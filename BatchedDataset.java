@@ -0,0 +1,14 @@
+/* This interface is implemented by chart datasets that can hold back
+   their change notifications. While batching is enabled, changes to the
+   dataset only mark it as changed, and a single notification covering
+   all of them is sent when the dataset is flushed. */
+interface BatchedDataset {
+
+    /* Enable or disable batching. Disabling it flushes any pending
+       change. */
+    public void setBatching(boolean b);
+
+    /* Notify the dataset's listeners if it has changed since the last
+       notification. */
+    public void flush();
+}
@@ -0,0 +1,95 @@
+import java.util.*;
+
+/* This class simulates the same M/M/s queue as its parents, but keeps
+   track of nothing but the number of customers in it. As service times
+   are exponentially distributed, the number of customers is itself a
+   continuous-time Markov chain: a birth-death process whose birth rate
+   is lambda and whose death rate in state n is min(n, s)*mu. The chain
+   is simulated one jump at a time in the manner of Gillespie: the time
+   to the next jump is exponentially distributed with the total rate,
+   and the jump is an arrival with probability lambda over the total
+   rate. The memory used and the work done per event are therefore
+   constant, however many customers are waiting, so that overloaded
+   queues can be run indefinitely. As individual customers are not
+   tracked, the listeners are not informed of their progress; the
+   service lengths of the arrivals are sampled only so that they can
+   be displayed. */
+class BirthDeathQueue extends EventMarkovQueue {
+    protected double nextEvent;   // time at which the next jump occurs
+    protected boolean nextBirth;  // the next jump is an arrival
+
+    /* Construct an M/M/s queue using the specified parameters. */
+    BirthDeathQueue(int s, double t, double l, double m) {
+	super(s, t, l, m);
+	schedule();
+    }
+
+    /* Construct an M/M/s queue using the specified parameters that
+       draws its random values from the specified source. */
+    BirthDeathQueue(int s, double t, double l, double m, RandomSource r) {
+	super(s, t, l, m, r);
+	schedule();
+    }
+
+    /* Draw the time and direction of the next jump from the current
+       state. As the process is memoryless, the jump remains valid for
+       as long as the state does not change. */
+    protected void schedule() {
+	int busy = servers < 1 || state < servers ? state : servers;
+	double rate = lambda + busy * mu;
+
+	nextEvent = time + ExponentialSampler.standard(random) / rate;
+	nextBirth = random.nextDouble() * rate < lambda;
+    }
+
+    /* Simulate the passage of one interval of time (as defined by the
+       tick variable) by making every jump that occurs within it. */
+    public void simulateStep() {
+	double end = time + tick;
+	int a = 0, d = 0;
+
+	lastServiceLengths = new Vector();
+	while (nextEvent <= end) {
+	    if (processEvent()) {
+		a++;
+	    } else {
+		d++;
+	    }
+	}
+	time = end;
+
+	lastArrivals = a;
+	lastDepartures = d;
+    }
+
+    /* Advance the queue clock to the next jump and make it. */
+    public void simulateEvent() {
+	lastServiceLengths = new Vector(1);
+	if (processEvent()) {
+	    lastArrivals = 1;
+	    lastDepartures = 0;
+	} else {
+	    lastArrivals = 0;
+	    lastDepartures = 1;
+	}
+    }
+
+    /* Return the time at which the next jump occurs. */
+    public double getNextEventTime() { return nextEvent; }
+
+    /* Make the next jump and draw the one after it. Returns true if the
+       jump was an arrival. */
+    protected boolean processEvent() {
+	boolean birth = nextBirth;
+
+	time = nextEvent;
+	if (birth) {
+	    state++;
+	    lastServiceLengths.add(new Double(serviceSampler.sample()));
+	} else {
+	    state--;
+	}
+	schedule();
+	return birth;
+    }
+}
@@ -0,0 +1,227 @@
+/* This class implements the calendar queue of Brown ("Calendar Queues:
+   A Fast O(1) Priority Queue Implementation for the Simulation Event
+   Set Problem," 1988), a priority queue of events keyed by time. The
+   time axis is divided into "days" of fixed width that are mapped onto
+   a circular array of buckets, like the days of a year onto the pages
+   of a desk calendar; each bucket holds the events that fall on its
+   days in a short sorted list. The next event is found by turning the
+   pages from the current day onward. The number of buckets is kept
+   proportional to the number of events, and the day width is set from
+   the spacing of the earliest events whenever the calendar is resized,
+   so that both adding an event and removing the earliest one take
+   constant amortized time. Each event carries an int of data; events
+   are stored in primitive arrays, linked through their indices, so
+   that no objects are allocated per event. Events with the same time
+   are removed in the order in which they were added. */
+class CalendarQueue {
+    protected static final int MIN_BUCKETS = 16;
+    protected static final int SAMPLE = 25; // events used to set the width
+
+    /* Event storage; free entries are linked through next[]. */
+    protected double[] times = new double[64];
+    protected int[] data = new int[64];
+    protected int[] next = new int[64];
+    protected int free = -1;        // first free entry, or -1
+    protected int used = 0;         // entries ever allocated
+
+    protected int[] heads;          // first event in each bucket, or -1
+    protected int mask;             // number of buckets - 1
+    protected double width = 1;     // length of a day
+    protected long day = 0;         // number of the current day
+    protected double lastTime = 0;  // time of the last event removed
+    protected int size = 0;         // number of events in the queue
+    protected boolean resizing = false;
+
+    /* Construct an empty calendar. */
+    CalendarQueue() {
+	heads = new int[MIN_BUCKETS];
+	java.util.Arrays.fill(heads, -1);
+	mask = MIN_BUCKETS - 1;
+    }
+
+    /* Return the number of events in the calendar. */
+    public int size() { return size; }
+
+    /* Return the time of the event most recently removed. */
+    public double getTime() { return lastTime; }
+
+    /* Add an event with the specified time and data. The time must not
+       precede that of the event most recently removed. */
+    public void add(double t, int d) {
+	int n;
+
+	if (free >= 0) {
+	    n = free;
+	    free = next[n];
+	} else {
+	    if (used == times.length) {
+		grow();
+	    }
+	    n = used++;
+	}
+	times[n] = t;
+	data[n] = d;
+	link(n);
+	size++;
+	if (size > 2 * (mask + 1) && !resizing) {
+	    resize(2 * (mask + 1));
+	}
+    }
+
+    /* Remove the earliest event and return its data; its time is then
+       returned by getTime(). The calendar must not be empty. */
+    public int remove() {
+	int n = unlink(), d = data[n];
+
+	next[n] = free;
+	free = n;
+	if (size < (mask + 1) / 2 && mask + 1 > MIN_BUCKETS && !resizing) {
+	    resize((mask + 1) / 2);
+	}
+	return d;
+    }
+
+    /* Empty the calendar. */
+    public void clear() {
+	java.util.Arrays.fill(heads, -1);
+	free = -1;
+	used = size = 0;
+	day = 0;
+	lastTime = 0;
+    }
+
+    /* Return the number of the day on which the specified time falls.
+       Since floating-point division is monotonic, later times never
+       fall on earlier days. */
+    protected long day(double t) {
+	return (long) (t / width);
+    }
+
+    /* Return the bucket of the specified time. */
+    protected int bucket(double t) {
+	return (int) (day(t) & mask);
+    }
+
+    /* Insert an event into the sorted list of its bucket, after any
+       events with the same time. */
+    protected void link(int n) {
+	int b = bucket(times[n]), p = heads[b];
+	double t = times[n];
+
+	if (p < 0 || times[p] > t) {
+	    next[n] = p;
+	    heads[b] = n;
+	    return;
+	}
+	while (next[p] >= 0 && times[next[p]] <= t) {
+	    p = next[p];
+	}
+	next[n] = next[p];
+	next[p] = n;
+    }
+
+    /* Detach the earliest event from its bucket and return its index. */
+    protected int unlink() {
+	int i, k, h, min;
+
+	/* Turn the pages for at most a year, looking for an event that
+	   falls on the current day. */
+	for (k = 0; k <= mask; k++, day++) {
+	    i = (int) (day & mask);
+	    h = heads[i];
+	    if (h >= 0 && day(times[h]) <= day) {
+		return take(i);
+	    }
+	}
+
+	/* No event falls within the next year, so jump directly to the
+	   earliest one. */
+	min = -1;
+	for (i = 0; i <= mask; i++) {
+	    h = heads[i];
+	    if (h >= 0 && (min < 0 || times[h] < times[heads[min]])) {
+		min = i;
+	    }
+	}
+	day = day(times[heads[min]]);
+	return take(min);
+    }
+
+    /* Detach the first event of the specified bucket. */
+    private int take(int b) {
+	int h = heads[b];
+
+	heads[b] = next[h];
+	lastTime = times[h];
+	size--;
+	return h;
+    }
+
+    /* Rebuild the calendar with the specified number of buckets and a
+       day width of about three times the average spacing of the
+       earliest events, ignoring unusually large gaps. */
+    protected void resize(int buckets) {
+	int k = Math.min(size, SAMPLE), i, n, b, count;
+	int[] sample = new int[k];
+	double saved = lastTime, avg, sum, w = width;
+	int[] old;
+
+	resizing = true;
+	for (i = 0; i < k; i++) {
+	    sample[i] = unlink();
+	}
+	if (k > 1) {
+	    avg = (times[sample[k - 1]] - times[sample[0]]) / (k - 1);
+	    sum = 0;
+	    count = 0;
+	    for (i = 1; i < k; i++) {
+		double gap = times[sample[i]] - times[sample[i - 1]];
+
+		if (gap <= 2 * avg) {
+		    sum += gap;
+		    count++;
+		}
+	    }
+	    if (count > 0 && sum > 0) {
+		w = 3 * sum / count;
+	    }
+	}
+
+	/* Move every event to the new buckets. */
+	old = heads;
+	heads = new int[buckets];
+	java.util.Arrays.fill(heads, -1);
+	mask = buckets - 1;
+	width = w;
+	for (i = 0; i < k; i++) {
+	    link(sample[i]);
+	}
+	for (b = 0; b < old.length; b++) {
+	    for (n = old[b]; n >= 0; ) {
+		int m = next[n];
+
+		link(n);
+		n = m;
+	    }
+	}
+	size += k;
+
+	lastTime = saved;
+	day = day(saved);
+	resizing = false;
+    }
+
+    /* Double the capacity of the event storage. */
+    private void grow() {
+	int c = 2 * times.length;
+	double[] t = new double[c];
+	int[] d = new int[c], x = new int[c];
+
+	System.arraycopy(times, 0, t, 0, used);
+	System.arraycopy(data, 0, d, 0, used);
+	System.arraycopy(next, 0, x, 0, used);
+	times = t;
+	data = d;
+	next = x;
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/* This class writes a table of results in a columnar binary format that
+   can be loaded without parsing. Each column is written to a file of
+   its own named base.name.bin that holds nothing but its values as
+   fixed-width little-endian numbers (8 bytes for 'd' and 'l' columns,
+   4 bytes for 'i' columns), so that it can be mapped or read directly
+   into an array. A small header file named base.col describes the
+   table: the magic number MQCL, the format version and the number of
+   rows and columns, followed by the type and name of each column. The
+   header is written when the table is closed. */
+class ColumnarTableWriter extends TableWriter {
+    public static final int MAGIC = 0x4d51434c; // "MQCL"
+    public static final int VERSION = 1;
+
+    protected String base;          // common prefix of the file names
+    protected FileChannel[] channels;
+    protected ByteBuffer[] buffers;
+
+    /* Create the column files of a table with the specified columns. */
+    ColumnarTableWriter(String b, String[] n, char[] t) throws IOException {
+	super(n, t);
+	int i;
+
+	base = b;
+	channels = new FileChannel[n.length];
+	buffers = new ByteBuffer[n.length];
+	for (i = 0; i < n.length; i++) {
+	    channels[i] = new FileOutputStream(columnName(b, n[i]))
+		.getChannel();
+	    buffers[i] = ByteBuffer.allocateDirect(BUFFER_SIZE / n.length)
+		.order(ByteOrder.LITTLE_ENDIAN);
+	}
+    }
+
+    /* Return the name of the file that holds the specified column of
+       the table with the specified base name. */
+    public static String columnName(String base, String column) {
+	return base + "." + column + ".bin";
+    }
+
+    public void putDouble(double x) throws IOException {
+	room(next('d'), 8).putDouble(x);
+    }
+
+    public void putInt(int x) throws IOException {
+	room(next('i'), 4).putInt(x);
+    }
+
+    public void putLong(long x) throws IOException {
+	room(next('l'), 8).putLong(x);
+    }
+
+    /* Return the buffer of the specified column after making sure that
+       it has room for the specified number of bytes. */
+    protected ByteBuffer room(int c, int n) throws IOException {
+	if (buffers[c].remaining() < n) {
+	    drain(buffers[c], channels[c]);
+	}
+	return buffers[c];
+    }
+
+    /* Write the remaining values and the header. */
+    public void close() throws IOException {
+	ByteBuffer h;
+	FileChannel c;
+	int i;
+
+	if (channels == null) {
+	    return;
+	}
+	try {
+	    for (i = 0; i < channels.length; i++) {
+		drain(buffers[i], channels[i]);
+	    }
+	} finally {
+	    for (i = 0; i < channels.length; i++) {
+		channels[i].close();
+	    }
+	    channels = null;
+	}
+
+	h = ByteBuffer.allocate(20 + 256 * names.length)
+	    .order(ByteOrder.LITTLE_ENDIAN);
+	h.putInt(MAGIC);
+	h.putInt(VERSION);
+	h.putLong(rows);
+	h.putInt(names.length);
+	for (i = 0; i < names.length; i++) {
+	    byte[] n = names[i].getBytes("UTF-8");
+
+	    h.put((byte) types[i]);
+	    h.put((byte) n.length);
+	    h.put(n);
+	}
+	c = new FileOutputStream(base + ".col").getChannel();
+	try {
+	    drain(h, c);
+	} finally {
+	    c.close();
+	}
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/* This class writes a table of results to a file in CSV format. The
+   first line holds the column names. */
+class CsvTableWriter extends TableWriter {
+    protected FileChannel channel;
+    protected ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /* Create the specified file and write the column names to it. */
+    CsvTableWriter(String file, String[] n, char[] t) throws IOException {
+	super(n, t);
+	int i;
+
+	channel = new FileOutputStream(file).getChannel();
+	for (i = 0; i < n.length; i++) {
+	    put(i > 0 ? "," + n[i] : n[i]);
+	}
+	put("\n");
+    }
+
+    public void putDouble(double x) throws IOException {
+	separate(next('d'));
+	put(Double.toString(x));
+    }
+
+    public void putInt(int x) throws IOException {
+	separate(next('i'));
+	put(Integer.toString(x));
+    }
+
+    public void putLong(long x) throws IOException {
+	separate(next('l'));
+	put(Long.toString(x));
+    }
+
+    public void endRow() throws IOException {
+	super.endRow();
+	put("\n");
+    }
+
+    public void close() throws IOException {
+	if (channel != null) {
+	    try {
+		drain(buffer, channel);
+	    } finally {
+		channel.close();
+		channel = null;
+	    }
+	}
+    }
+
+    /* Write a separator before every value but the first in a row. */
+    protected void separate(int c) throws IOException {
+	if (c > 0) {
+	    put(",");
+	}
+    }
+
+    /* Append an ASCII string to the buffer. */
+    protected void put(String s) throws IOException {
+	int i;
+
+	if (buffer.remaining() < s.length()) {
+	    drain(buffer, channel);
+	}
+	for (i = 0; i < s.length(); i++) {
+	    buffer.put((byte) s.charAt(i));
+	}
+    }
+}
@@ -0,0 +1,134 @@
+/* This class implements a first-in first-out line of customers as a
+   growable ring buffer. Rather than storing an object per customer, the
+   remaining service time, arrival time and total service time of each
+   customer are kept in parallel primitive arrays whose capacity is
+   always a power of two. Customers are appended at the tail and leave
+   from the head in constant time. */
+class CustomerBuffer {
+    protected double[] remaining; // service time left for each customer
+    protected double[] arrivals;  // time at which each customer arrived
+    protected double[] services;  // total service time of each customer
+    protected int head = 0;       // physical index of the first customer
+    protected int size = 0;       // number of customers in the buffer
+    protected int mask;           // capacity - 1, used to wrap indices
+
+    /* Construct a buffer with a small default capacity. */
+    CustomerBuffer() {
+	this(16);
+    }
+
+    /* Construct a buffer able to hold at least the specified number of
+       customers before it must grow. */
+    CustomerBuffer(int capacity) {
+	int c = 1;
+
+	while (c < capacity) {
+	    c <<= 1;
+	}
+	remaining = new double[c];
+	arrivals = new double[c];
+	services = new double[c];
+	mask = c - 1;
+    }
+
+    /* Return the number of customers in the buffer. */
+    public int size() { return size; }
+
+    /* Return the remaining service time of the i-th customer in line. */
+    public double getRemaining(int i) { return remaining[(head + i) & mask]; }
+
+    /* Return the arrival time of the i-th customer in line. */
+    public double getArrival(int i) { return arrivals[(head + i) & mask]; }
+
+    /* Return the total service time of the i-th customer in line. */
+    public double getService(int i) { return services[(head + i) & mask]; }
+
+    /* Append a customer with the specified service and arrival times to
+       the end of the line. */
+    public void add(double s, double a) {
+	int j;
+
+	if (size == remaining.length) {
+	    grow();
+	}
+	j = (head + size) & mask;
+	remaining[j] = services[j] = s;
+	arrivals[j] = a;
+	size++;
+    }
+
+    /* Remove the customer at the front of the line. */
+    public void removeFirst() {
+	head = (head + 1) & mask;
+	size--;
+    }
+
+    /* Decrement the remaining service time of the first k customers in
+       line by the specified amount. */
+    public void serve(int k, double dt) {
+	int i;
+
+	for (i = 0; i < k; i++) {
+	    remaining[(head + i) & mask] -= dt;
+	}
+    }
+
+    /* Remove those of the first k customers in line whose service has
+       been completed, preserving the order of the others. The survivors
+       are shifted toward the back of the first k slots so that the head
+       of the line can simply be advanced past the vacated ones. Returns
+       the number of customers removed. */
+    public int removeCompleted(int k) {
+	int r, w = k - 1, pr, pw;
+
+	for (r = k - 1; r >= 0; r--) {
+	    pr = (head + r) & mask;
+	    if (remaining[pr] > 0) {
+		if (w != r) {
+		    pw = (head + w) & mask;
+		    remaining[pw] = remaining[pr];
+		    arrivals[pw] = arrivals[pr];
+		    services[pw] = services[pr];
+		}
+		w--;
+	    }
+	}
+
+	/* The first w + 1 slots now hold only departed customers. */
+	head = (head + w + 1) & mask;
+	size -= w + 1;
+	return w + 1;
+    }
+
+    /* Empty the buffer. */
+    public void clear() {
+	head = size = 0;
+    }
+
+    /* Double the capacity of the buffer, unwrapping its contents so that
+       the first customer is stored at index 0. */
+    private void grow() {
+	int c = 2*remaining.length;
+
+	remaining = unwrap(remaining, c);
+	arrivals = unwrap(arrivals, c);
+	services = unwrap(services, c);
+	head = 0;
+	mask = c - 1;
+    }
+
+    /* Copy the contents of the specified ring into a new array of the
+       specified length. */
+    private double[] unwrap(double[] ring, int c) {
+	double[] a = new double[c];
+	int n = ring.length - head;
+
+	if (n >= size) {
+	    System.arraycopy(ring, head, a, 0, size);
+	} else {
+	    System.arraycopy(ring, head, a, 0, n);
+	    System.arraycopy(ring, 0, a, n, size - n);
+	}
+	return a;
+    }
+}
@@ -0,0 +1,50 @@
+/* This class accumulates statistics of the waiting times (from arrival
+   to the start of service) and sojourn times (from arrival to
+   departure) of the customers passing through a queue. It uses constant
+   memory however long the run, so tail quantiles of the waiting time
+   can be obtained from runs of any length. */
+class CustomerStatistics implements QueueListener {
+    protected Moments wait = new Moments();
+    protected Moments sojourn = new Moments();
+    protected QuantileSketch waitQuantiles = new QuantileSketch();
+    protected QuantileSketch sojournQuantiles = new QuantileSketch();
+
+    public void arrived(double t, double service) {
+    }
+
+    public void serviceStarted(double t, double arrival) {
+	wait.add(t - arrival);
+	waitQuantiles.add(t - arrival);
+    }
+
+    public void departed(double t, double arrival) {
+	sojourn.add(t - arrival);
+	sojournQuantiles.add(t - arrival);
+    }
+
+    /* Add the statistics accumulated by another object to these. */
+    public void merge(CustomerStatistics c) {
+	wait.merge(c.wait);
+	sojourn.merge(c.sojourn);
+	waitQuantiles.merge(c.waitQuantiles);
+	sojournQuantiles.merge(c.sojournQuantiles);
+    }
+
+    /* Return the moments of the waiting times of the customers whose
+       service has started. */
+    public Moments getWait() { return wait; }
+
+    /* Return the moments of the sojourn times of the customers who have
+       departed. */
+    public Moments getSojourn() { return sojourn; }
+
+    /* Return the specified quantile of the waiting times. */
+    public double getWaitQuantile(double q) {
+	return waitQuantiles.getQuantile(q);
+    }
+
+    /* Return the specified quantile of the sojourn times. */
+    public double getSojournQuantile(double q) {
+	return sojournQuantiles.getQuantile(q);
+    }
+}
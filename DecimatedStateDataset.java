@@ -0,0 +1,236 @@
+import java.util.*;
+import com.jrefinery.data.*;
+
+/* This class stores the entire evolution of the queue state, but only
+   hands a decimated view of it to the JFreeChart package, so that the
+   cost of drawing the chart does not grow with the length of the
+   simulation. The entries are divided into a fixed number of buckets of
+   consecutive entries, one per column of pixels in which the chart is
+   drawn. From each bucket, only the first, last, smallest and largest
+   states are shown (the M4 aggregation of Jugel et al., 2014), which
+   draws the same line as all of the entries in the bucket would; in
+   particular, short bursts of activity remain visible however many
+   entries are stored. When all buckets are full, adjacent pairs of
+   buckets are merged, so that adding an entry takes constant amortized
+   time. */
+public class DecimatedStateDataset extends AbstractSeriesDataset 
+    implements XYDataset, BatchedDataset {
+
+    protected double[] times = new double[1024]; // entry times
+    protected int[] states = new int[1024];      // entry states
+    protected int size = 0;          // number of entries stored
+
+    /* Each bucket holds 2^shift consecutive entries. For each bucket, the
+       indices of its first, last, smallest and largest entries are
+       kept; ties are resolved in favour of the earliest entry. */
+    protected int columns;           // maximum number of buckets
+    protected int used = 0;          // number of buckets in use
+    protected int shift = 0;
+    protected int[] first, last, min, max;
+
+    /* The entries shown are identified by their indices, and the boxed
+       values handed to JFreeChart are cached until the view changes. */
+    protected int[] view;
+    protected int viewSize = 0;
+    protected boolean stale = false; // view must be rebuilt
+    protected Double[] timeValues;
+    protected Integer[] stateValues = new Integer[16]; // indexed by state
+
+    protected boolean batching = false;  // hold back change notifications
+    protected volatile boolean changed = false; // a notification is pending
+
+    /* Construct a dataset for a chart that is 300 pixels wide. */
+    public DecimatedStateDataset() {
+	this(300);
+    }
+
+    /* Construct a dataset that shows at most four entries for each of
+       the specified number of columns. */
+    public DecimatedStateDataset(int c) {
+	columns = Math.max(2, c + (c & 1));
+	first = new int[columns];
+	last = new int[columns];
+	min = new int[columns];
+	max = new int[columns];
+	view = new int[4*columns];
+	timeValues = new Double[4*columns];
+    }
+
+    /* Return the number of entries stored. */
+    public int size() { return size; }
+
+    /* Get the time of the specified entry. */
+    public double getTime(int i) { return times[i]; }
+
+    /* Get the state of the specified entry. */
+    public int getState(int i) { return states[i]; }
+
+    /* Get the X value (i.e., the time) of the specified item in the 
+       view. */
+    public Number getXValue(int series, int item) {
+	if (item < 0 || item >= getItemCount(series)) {
+	    return null;
+	}
+	if (timeValues[item] == null) {
+	    timeValues[item] = new Double(times[view[item]]);
+	}
+	return timeValues[item];
+    }
+
+    /* Get the Y value (i.e., the state) of the specified item in the
+       view. */
+    public Number getYValue(int series, int item) {
+	int s;
+
+	if (item < 0 || item >= getItemCount(series)) {
+	    return null;
+	}
+
+	/* States are small nonnegative integers, so a single boxed value
+	   per state is shared by all of the entries. */
+	s = states[view[item]];
+	if (s < 0) {
+	    return new Integer(s);
+	}
+	if (s >= stateValues.length) {
+	    Integer[] v = new Integer[Math.max(s + 1, 2*stateValues.length)];
+	    System.arraycopy(stateValues, 0, v, 0, stateValues.length);
+	    stateValues = v;
+	}
+	if (stateValues[s] == null) {
+	    stateValues[s] = new Integer(s);
+	}
+	return stateValues[s];
+    }
+
+    /* As the dataset only contains one series of data, the series
+       argument is ignored. */
+    public int getItemCount(int series) {
+	if (stale) {
+	    buildView();
+	}
+	return viewSize;
+    }
+    public int getSeriesCount() { return 1; }
+    public String getSeriesName(int series) { return "State"; }
+
+    /* Append a time/state pair to the dataset. */
+    public boolean add(double t, int s) {
+	int i, b;
+
+	if (size == times.length) {
+	    grow();
+	}
+	i = size++;
+	times[i] = t;
+	states[i] = s;
+
+	b = i >> shift;
+	if (b == columns) {
+	    merge();
+	    b = i >> shift;
+	}
+	if (b == used) {
+	    first[b] = last[b] = min[b] = max[b] = i;
+	    used++;
+	} else {
+	    last[b] = i;
+	    if (s < states[min[b]]) {
+		min[b] = i;
+	    }
+	    if (s > states[max[b]]) {
+		max[b] = i;
+	    }
+	}
+	stale = true;
+
+	/* Inform all relevant chart objects that the dataset has changed
+	   and should therefore be redrawn. */
+	fireChanged();
+	return true;
+    }
+
+    /* Empty the entire dataset. */
+    public void clear() {
+	size = used = shift = viewSize = 0;
+	stale = false;
+	fireChanged();
+    }
+
+    /* Merge adjacent pairs of buckets, doubling the number of entries
+       that each bucket holds. */
+    protected void merge() {
+	int j, a, b;
+
+	for (j = 0; j < columns/2; j++) {
+	    a = 2*j;
+	    b = a + 1;
+	    first[j] = first[a];
+	    last[j] = last[b];
+	    min[j] = states[min[b]] < states[min[a]] ? min[b] : min[a];
+	    max[j] = states[max[b]] > states[max[a]] ? max[b] : max[a];
+	}
+	used = columns/2;
+	shift++;
+    }
+
+    /* List the entries to be shown in order of time. */
+    protected void buildView() {
+	int b, k, n = 0;
+	int[] e = new int[4];
+
+	for (b = 0; b < used; b++) {
+	    e[0] = first[b];
+	    e[1] = min[b];
+	    e[2] = max[b];
+	    e[3] = last[b];
+	    Arrays.sort(e);
+	    for (k = 0; k < 4; k++) {
+		if (n == 0 || view[n - 1] != e[k]) {
+		    view[n++] = e[k];
+		}
+	    }
+	}
+	viewSize = n;
+	Arrays.fill(timeValues, null);
+	stale = false;
+    }
+
+    /* Double the capacity of the entry storage. */
+    private void grow() {
+	double[] t = new double[2*times.length];
+	int[] s = new int[2*states.length];
+
+	System.arraycopy(times, 0, t, 0, size);
+	System.arraycopy(states, 0, s, 0, size);
+	times = t;
+	states = s;
+    }
+
+    /* Enable or disable batching of change notifications. */
+    public void setBatching(boolean b) {
+	batching = b;
+	if (!b) {
+	    flush();
+	}
+    }
+
+    /* Notify the listeners if the dataset has changed since the last
+       notification. */
+    public void flush() {
+	if (changed) {
+	    changed = false;
+	    notifyListeners(new DatasetChangeEvent(this));
+	}
+    }
+
+    /* Inform all relevant chart objects that the dataset has changed,
+       or just note the change if notifications are being batched. */
+    protected void fireChanged() {
+	if (batching) {
+	    changed = true;
+	} else {
+	    notifyListeners(new DatasetChangeEvent(this));
+	}
+    }
+}
@@ -0,0 +1,100 @@
+/* This class implements a binary min-heap of customer departure times.
+   Each departure time is paired with the arrival time of the customer
+   to whom it belongs. Both are stored in primitive arrays that are
+   grown as needed so that no objects are allocated per customer. */
+class DepartureHeap {
+    protected double[] times;    // departure times (the heap keys)
+    protected double[] arrivals; // corresponding arrival times
+    protected int size = 0;      // number of entries in the heap
+
+    /* Construct a heap with a small default capacity. */
+    DepartureHeap() {
+	this(16);
+    }
+
+    /* Construct a heap with the specified initial capacity. */
+    DepartureHeap(int capacity) {
+	if (capacity < 1) {
+	    capacity = 1;
+	}
+	times = new double[capacity];
+	arrivals = new double[capacity];
+    }
+
+    /* Return the number of entries in the heap. */
+    public int size() { return size; }
+
+    /* Return the earliest departure time in the heap. */
+    public double peekTime() { return times[0]; }
+
+    /* Return the arrival time of the customer who departs earliest. */
+    public double peekArrival() { return arrivals[0]; }
+
+    /* Insert a departure time and the associated arrival time. */
+    public void add(double t, double a) {
+	int i, parent;
+
+	if (size == times.length) {
+	    grow();
+	}
+
+	/* Sift the new entry up from the bottom of the heap. */
+	i = size++;
+	while (i > 0) {
+	    parent = (i - 1) >>> 1;
+	    if (times[parent] <= t) {
+		break;
+	    }
+	    times[i] = times[parent];
+	    arrivals[i] = arrivals[parent];
+	    i = parent;
+	}
+	times[i] = t;
+	arrivals[i] = a;
+    }
+
+    /* Remove the entry with the earliest departure time. The heap must
+       not be empty. */
+    public void remove() {
+	int i = 0, child;
+	double t, a;
+
+	size--;
+	if (size == 0) {
+	    return;
+	}
+
+	/* Sift the last entry down from the top of the heap. */
+	t = times[size];
+	a = arrivals[size];
+	while ((child = 2*i + 1) < size) {
+	    if (child + 1 < size && times[child + 1] < times[child]) {
+		child++;
+	    }
+	    if (t <= times[child]) {
+		break;
+	    }
+	    times[i] = times[child];
+	    arrivals[i] = arrivals[child];
+	    i = child;
+	}
+	times[i] = t;
+	arrivals[i] = a;
+    }
+
+    /* Empty the heap. */
+    public void clear() {
+	size = 0;
+    }
+
+    /* Double the capacity of the storage arrays. */
+    private void grow() {
+	double[] t = new double[2*times.length];
+	double[] a = new double[2*times.length];
+
+	System.arraycopy(times, 0, t, 0, size);
+	System.arraycopy(arrivals, 0, a, 0, size);
+	times = t;
+	arrivals = a;
+    }
+}
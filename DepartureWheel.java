@@ -0,0 +1,90 @@
+/* This class schedules customer departures that take place at the end
+   of numbered simulation steps, in the manner of the timing wheel of
+   Varghese and Lauck ("Hashed and Hierarchical Timing Wheels," 1987).
+   The wheel has one slot for each of the next few steps, holding the
+   arrival times of the customers who leave at the end of that step, so
+   that scheduling a departure and processing it both take constant
+   time. Departures too far ahead of the current step to fit on the
+   wheel are kept in a DepartureHeap until the wheel has turned far
+   enough. */
+class DepartureWheel {
+    protected double[][] slots;  // arrival times of departing customers
+    protected int[] counts;      // number of departures in each slot
+    protected int mask;          // number of slots - 1
+    protected long base;         // current step, i.e., that of the next slot
+    protected int size = 0;      // number of departures scheduled
+    protected DepartureHeap overflow = new DepartureHeap();
+
+    /* Construct a wheel with at least the specified number of slots
+       whose current step is the specified one. */
+    DepartureWheel(int n, long step) {
+	int c = 16;
+
+	base = step;
+	while (c < n && c < (1 << 20)) {
+	    c <<= 1;
+	}
+	slots = new double[c][];
+	counts = new int[c];
+	mask = c - 1;
+    }
+
+    /* Return the number of departures scheduled. */
+    public int size() { return size; }
+
+    /* Schedule the departure at the end of the specified step of the
+       customer who arrived at the specified time. The step must not
+       precede the current one. */
+    public void add(long step, double arrival) {
+	if (step - base > mask) {
+	    overflow.add(step, arrival);
+	} else {
+	    put((int) step & mask, arrival);
+	}
+	size++;
+    }
+
+    /* Return the number of departures at the end of the current step. */
+    public int getCount() { return counts[(int) base & mask]; }
+
+    /* Return the arrival time of the i-th customer to leave at the end
+       of the current step. */
+    public double getArrival(int i) { return slots[(int) base & mask][i]; }
+
+    /* Discard the departures at the end of the current step and turn
+       the wheel to the next one, moving any departures that now fit on
+       the wheel from the overflow heap. */
+    public void advance() {
+	int j = (int) base & mask;
+
+	size -= counts[j];
+	counts[j] = 0;
+	base++;
+	while (overflow.size() > 0 && overflow.peekTime() - base <= mask) {
+	    put((int) (long) overflow.peekTime() & mask, 
+		overflow.peekArrival());
+	    overflow.remove();
+	}
+    }
+
+    /* Empty the wheel. */
+    public void clear() {
+	java.util.Arrays.fill(counts, 0);
+	overflow.clear();
+	size = 0;
+    }
+
+    /* Append an arrival time to the specified slot. */
+    private void put(int j, double arrival) {
+	double[] s = slots[j];
+
+	if (s == null) {
+	    s = slots[j] = new double[4];
+	} else if (counts[j] == s.length) {
+	    double[] t = new double[2*s.length];
+	    System.arraycopy(s, 0, t, 0, s.length);
+	    s = slots[j] = t;
+	}
+	s[counts[j]++] = arrival;
+    }
+}
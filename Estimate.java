@@ -0,0 +1,101 @@
+/* This class represents an estimate of a quantity obtained from a set
+   of independent observations, e.g., the results of independent
+   simulation replications, together with a confidence interval based on
+   Student's t distribution. */
+class Estimate {
+    protected int count;        // number of observations
+    protected double mean;      // sample mean
+    protected double deviation; // sample standard deviation
+    protected double halfWidth; // half-width of the confidence interval
+    protected double level;     // confidence level
+
+    /* Construct an estimate from the specified observations with the
+       specified confidence level (e.g., 0.95). */
+    Estimate(double[] x, double level) {
+	double m = 0, q = 0, d;
+	int i;
+
+	/* Welford's method avoids cancellation in the variance. */
+	count = x.length;
+	for (i = 0; i < count; i++) {
+	    d = x[i] - m;
+	    m += d / (i + 1);
+	    q += d * (x[i] - m);
+	}
+	mean = m;
+	this.level = level;
+	if (count > 1) {
+	    deviation = Math.sqrt(q / (count - 1));
+	    halfWidth = studentQuantile(0.5 + level / 2, count - 1) 
+		* deviation / Math.sqrt(count);
+	} else {
+	    deviation = halfWidth = Double.NaN;
+	}
+    }
+
+    public int getCount() { return count; }
+    public double getMean() { return mean; }
+    public double getDeviation() { return deviation; }
+    public double getHalfWidth() { return halfWidth; }
+    public double getLevel() { return level; }
+    public double getLower() { return mean - halfWidth; }
+    public double getUpper() { return mean + halfWidth; }
+
+    public String toString() {
+	return mean + " +/- " + halfWidth;
+    }
+
+    /* Return the p-quantile of Student's t distribution with the
+       specified number of degrees of freedom. The quantile is exact for
+       one and two degrees of freedom and otherwise obtained from the
+       normal quantile by the expansion in Abramowitz and Stegun 26.7.5,
+       which is accurate to about three digits for three degrees of
+       freedom and improves rapidly thereafter. */
+    public static double studentQuantile(double p, int df) {
+	if (df == 1) {
+	    return Math.tan(Math.PI * (p - 0.5));
+	} else if (df == 2) {
+	    return (2*p - 1) / Math.sqrt(2*p*(1 - p));
+	}
+
+	double z = normalQuantile(p), z2 = z*z, n = df;
+	double g1 = (z2 + 1) * z / 4;
+	double g2 = ((5*z2 + 16) * z2 + 3) * z / 96;
+	double g3 = (((3*z2 + 19) * z2 + 17) * z2 - 15) * z / 384;
+	double g4 = ((((79*z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) 
+	    * z / 92160;
+	return z + (g1 + (g2 + (g3 + g4/n)/n)/n)/n;
+    }
+
+    /* Return the p-quantile of the standard normal distribution using
+       Acklam's rational approximation, whose relative error is below
+       1.2e-9. */
+    public static double normalQuantile(double p) {
+	final double[] a = { -3.969683028665376e+01,  2.209460984245205e+02,
+			     -2.759285104469687e+02,  1.383577518672690e+02,
+			     -3.066479806614716e+01,  2.506628277459239e+00 };
+	final double[] b = { -5.447609879822406e+01,  1.615858368580409e+02,
+			     -1.556989798598866e+02,  6.680131188771972e+01,
+			     -1.328068155288572e+01 };
+	final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01,
+			     -2.400758277161838e+00, -2.549732539343734e+00,
+			      4.374664141464968e+00,  2.938163982698783e+00 };
+	final double[] d = {  7.784695709041462e-03,  3.224671290700398e-01,
+			      2.445134137142996e+00,  3.754408661907416e+00 };
+	double q, r;
+
+	if (p < 0.02425) {
+	    q = Math.sqrt(-2 * Math.log(p));
+	    return (((((c[0]*q + c[1])*q + c[2])*q + c[3])*q + c[4])*q + c[5])
+		/ ((((d[0]*q + d[1])*q + d[2])*q + d[3])*q + 1);
+	} else if (p > 1 - 0.02425) {
+	    q = Math.sqrt(-2 * Math.log(1 - p));
+	    return -(((((c[0]*q + c[1])*q + c[2])*q + c[3])*q + c[4])*q + c[5])
+		/ ((((d[0]*q + d[1])*q + d[2])*q + d[3])*q + 1);
+	}
+	q = p - 0.5;
+	r = q*q;
+	return (((((a[0]*r + a[1])*r + a[2])*r + a[3])*r + a[4])*r + a[5])*q
+	    / (((((b[0]*r + b[1])*r + b[2])*r + b[3])*r + b[4])*r + 1);
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.*;
+
+/* This class implements the same memoryless Markovian queue as its
+   parent, but rather than advancing the queue clock in increments of
+   fixed size, it jumps directly from each arrival or service completion
+   to the next. Events therefore take place at their exact times, and no
+   work is performed during intervals in which nothing happens. */
+class EventMarkovQueue extends MarkovQueue {
+    protected double nextArrival;  // time at which the next arrival occurs
+    protected DepartureHeap busy;  // customers currently being serviced
+    protected ExponentialSampler interarrivalSampler; // arrival gaps
+
+    /* Construct a queue with the default parameters. */
+    EventMarkovQueue() {
+	super();
+	init();
+    }
+
+    /* Construct an M/M/s queue using the specified parameters. The tick
+       only determines the length of the interval simulated by each call
+       to simulateStep(). */
+    EventMarkovQueue(int s, double t, double l, double m) {
+	super(s, t, l, m);
+	init();
+    }
+
+    /* Construct an M/M/s queue using the specified parameters that
+       draws its random values from the specified source. */
+    EventMarkovQueue(int s, double t, double l, double m, RandomSource r) {
+	super(s, t, l, m, r);
+	init();
+    }
+
+    /* Set up the departure schedule and the first arrival. The customer
+       buffer inherited from the parent class holds only those customers
+       who are waiting for a server to become available. */
+    private void init() {
+	busy = new DepartureHeap();
+	interarrivalSampler = new ExponentialSampler(lambda, random);
+	nextArrival = time + interarrivalSampler.sample();
+    }
+
+    /* Simulate the passage of one interval of time (as defined by the
+       tick variable) by processing every event that occurs within it. */
+    public void simulateStep() {
+	double end = time + tick;
+	int a = 0, d = 0;
+
+	lastServiceLengths = new Vector();
+	while (getNextEventTime() <= end) {
+	    if (processEvent()) {
+		a++;
+	    } else {
+		d++;
+	    }
+	}
+	time = end;
+
+	state = busy.size() + customers.size();
+	lastArrivals = a;
+	lastDepartures = d;
+    }
+
+    /* Advance the queue clock to the next arrival or departure and
+       process it. */
+    public void simulateEvent() {
+	lastServiceLengths = new Vector(1);
+	if (processEvent()) {
+	    lastArrivals = 1;
+	    lastDepartures = 0;
+	} else {
+	    lastArrivals = 0;
+	    lastDepartures = 1;
+	}
+	state = busy.size() + customers.size();
+    }
+
+    /* Return the time at which the next arrival or departure occurs. */
+    public double getNextEventTime() {
+	if (busy.size() > 0 && busy.peekTime() <= nextArrival) {
+	    return busy.peekTime();
+	}
+	return nextArrival;
+    }
+
+    /* Process whichever event comes first and set the queue clock to the
+       time at which it takes place. A departure that coincides with an
+       arrival is processed first. Returns true if the event was an
+       arrival. */
+    protected boolean processEvent() {
+	if (busy.size() > 0 && busy.peekTime() <= nextArrival) {
+	    time = busy.peekTime();
+	    depart();
+	    return false;
+	} else {
+	    time = nextArrival;
+	    arrive();
+	    return true;
+	}
+    }
+
+    /* Admit a new customer with an exponentially distributed service
+       time. The customer is serviced immediately if a server is free
+       (or if there are infinitely many servers); otherwise the customer
+       joins the end of the waiting line. */
+    protected void arrive() {
+	double s = serviceSampler.sample();
+
+	lastServiceLengths.add(new Double(s));
+	fireArrived(s);
+	if (servers < 1 || busy.size() < servers) {
+	    busy.add(time + s, time);
+	    fireServiceStarted(time);
+	} else {
+	    customers.add(s, time);
+	}
+
+	nextArrival = time + interarrivalSampler.sample();
+    }
+
+    /* Release the customer whose service completes first and hand the
+       freed server to the customer at the front of the waiting line. */
+    protected void depart() {
+	fireDeparted(busy.peekArrival());
+	busy.remove();
+	if (customers.size() > 0) {
+	    busy.add(time + customers.getService(0), customers.getArrival(0));
+	    fireServiceStarted(customers.getArrival(0));
+	    customers.removeFirst();
+	}
+    }
+}
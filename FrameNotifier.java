@@ -0,0 +1,69 @@
+import java.awt.event.*;
+import java.util.*;
+import javax.swing.Timer;
+
+/* This class limits the rate at which a group of datasets notify their
+   charts of changes. The datasets are put into batching mode and are
+   flushed by a Swing timer at the specified frame rate, so that each
+   chart is redrawn at most once per frame however many changes are made
+   to its data in the meantime. Since the timer runs on the event
+   dispatching thread, the charts are also redrawn on that thread.
+   Action listeners registered with the notifier are called at the start
+   of each frame, before the datasets are flushed, so that they can
+   update the datasets from the same thread. */
+public class FrameNotifier implements ActionListener {
+    protected Vector datasets = new Vector();
+    protected Vector listeners = new Vector();
+    protected Timer timer;
+
+    /* Construct a notifier with the specified frame rate (in frames per
+       second). */
+    public FrameNotifier(double rate) {
+	timer = new Timer(delay(rate), this);
+	timer.setCoalesce(true);
+    }
+
+    /* Put a dataset under the control of the notifier. */
+    public void add(BatchedDataset d) {
+	d.setBatching(true);
+	datasets.add(d);
+    }
+
+    /* Release a dataset from the control of the notifier. */
+    public void remove(BatchedDataset d) {
+	datasets.remove(d);
+	d.setBatching(false);
+    }
+
+    /* Register a listener to be called at the start of each frame. */
+    public void addActionListener(ActionListener l) {
+	listeners.add(l);
+    }
+
+    /* Change the frame rate. */
+    public void setFrameRate(double rate) {
+	timer.setDelay(delay(rate));
+    }
+
+    /* Start and stop sending notifications. */
+    public void start() { timer.start(); }
+    public void stop() { timer.stop(); }
+
+    /* Call the listeners and then flush all of the datasets once per
+       frame. */
+    public void actionPerformed(ActionEvent e) {
+	int i;
+
+	for (i = 0; i < listeners.size(); i++) {
+	    ((ActionListener) listeners.get(i)).actionPerformed(e);
+	}
+	for (i = 0; i < datasets.size(); i++) {
+	    ((BatchedDataset) datasets.get(i)).flush();
+	}
+    }
+
+    /* Convert a frame rate into a timer delay in milliseconds. */
+    private static int delay(double rate) {
+	return Math.max(1, (int) Math.round(1000 / rate));
+    }
+}
@@ -4,107 +4,214 @@ import com.jrefinery.data.*;
 /* This class is used to store a series of entries that must be plotted
    as a histogram. */
 public class HistDataset extends AbstractSeriesDataset 
-    implements CategoryDataset {
+    implements CategoryDataset, BatchedDataset {
+
+    protected static final Double ZERO = new Double(0);
 
     protected int window; // number of entries to plot
 
-    /* Bar heights are stored in a vector that is resized as needed. */
-    protected Vector data, categories;
-    protected Hashtable hash;
+    /* Bar heights are stored in a primitive array whose capacity is
+       doubled as needed; length is the number of bars in use. The boxed
+       heights handed to JFreeChart are cached until the bar changes. */
+    protected double[] values = new double[16];
+    protected Double[] boxed = new Double[16];
+    protected int length = 0;
+
+    /* The categories shown form a window of bars starting at the start
+       index. The list of categories is immutable and is only rebuilt
+       when the window moves. */
+    protected int start = 0, count = 0;
+    protected List categories = Collections.EMPTY_LIST;
+
+    /* An optional second series of expected bar heights may be shown
+       next to the first for comparison. */
+    protected double[] expected = null;
+
+    protected boolean batching = false;  // hold back change notifications
+    protected volatile boolean changed = false; // a notification is pending
 
     /* Construct a dataset. */
     public HistDataset(int w) {
 	window = w;
-	data = new Vector();
-	categories = new Vector(window);
     }
 
     /* Get the value associated with the specified  
        categories in the series. */
     public Number getValue(int series, Object category) {
-	Integer i = (Integer) category;
-	Double d;
+	int x = ((Integer) category).intValue();
 
-	try {
-	    d = (Double) data.get(i.intValue());
-	} catch (ArrayIndexOutOfBoundsException e) {
-	    return new Double(0);
+	if (series == 1) {
+	    return new Double(x < expected.length ? expected[x] : 0);
 	}
+	return getBoxed(x);
+    }
+
+    /* Return the height of the specified bar without boxing it. */
+    public double getValue(int x) {
+	return x >= 0 && x < length ? values[x] : 0;
+    }
 
-	return d;
+    /* The dataset contains the bars and possibly their expected
+       heights. */
+    public int getSeriesCount() { return expected == null ? 1 : 2; }
+    public String getSeriesName(int series) { 
+	return series == 0 ? "" : "Expected";
     }
 
-    /* As the dataset only contains one series of data, the series
-       argument is ignored. */
-    public int getSeriesCount() { return 1; }
-    public String getSeriesName(int series) { return ""; }
-    public int getCategoryCount() { return categories.size(); }
-    public List getCategories() { return new Vector(categories); }
+    /* Show the specified expected bar heights next to the bars, or
+       remove them if the argument is null. */
+    public void setExpected(double[] e) {
+	expected = e;
+	fireChanged();
+    }
+    public int getCategoryCount() { return count; }
+
+    /* Return the categories currently shown. The list must not be
+       modified. */
+    public List getCategories() {
+	if (categories == null) {
+	    List c = new ArrayList(count);
+	    int i;
+
+	    for (i = start; i < start + count; i++) {
+		c.add(category(i));
+	    }
+	    categories = Collections.unmodifiableList(c);
+	}
+	return categories;
+    }
 	
     /* Add a value pair to the dataset. */
-    public boolean add(int x, double y) {	
-	int i, start = 0, max, min;
-
-	/* If the given value is larger than the largest index currently in
-	   the vector, extend the data vector up to that index by inserting
-	   zero entries. */
-	if (x  >= data.size()) {
-	    for (i = data.size(); i <= x; i++) {
-		data.add(i, new Double(0));
-	    } 
-	} 
-
-	try {
-	    data.set(x, new Double(y));	
-	} catch (ArrayIndexOutOfBoundsException e) {
+    public boolean add(int x, double y) {        
+	if (x < 0) {
 	    return false;
 	}
+	set(x, y);
+	moveWindow(x);
+		
+	/* Inform all relevant chart objects that the dataset has changed
+	   and should therefore be redrawn. */
+	fireChanged();
+	return true;
+    }
 
-	/* In order to avoid cluttering the chart, the category vector
-	   is constructed to act as a maximum width window on the data 
-	   vector. */
-	if (categories.size() > 0) {
-	    max = ((Integer) categories.get(categories.size() - 1)).intValue();
-	    min = ((Integer) categories.get(0)).intValue();
+    /* Increase the height of the specified bar by one. */
+    public boolean increment(int x) {
+	return add(x, getValue(x) + 1);
+    }
+
+    /* Empty the entire dataset. */
+    public void clear() {
+	Arrays.fill(values, 0, length, 0);
+	Arrays.fill(boxed, 0, length, null);
+	length = start = count = 0;
+	categories = Collections.EMPTY_LIST;
+	expected = null;
+
+	fireChanged();
+    }
+
+    /* Return the category object for the bar with the specified index. */
+    protected Object category(int i) {
+	return new Integer(i);
+    }
+
+    /* Return the boxed height of the specified bar. */
+    protected Number getBoxed(int x) {
+	if (x < 0 || x >= length) {
+	    return ZERO;
+	}
+	if (boxed[x] == null) {
+	    boxed[x] = new Double(values[x]);
+	}
+	return boxed[x];
+    }
+
+    /* Set the height of the specified bar. If the bar is beyond the
+       largest index currently in use, the bars in between are given
+       zero heights. */
+    protected void set(int x, double y) {
+	if (x >= values.length) {
+	    int c = Math.max(x + 1, 2*values.length);
+	    double[] v = new double[c];
+	    Double[] b = new Double[c];
+
+	    System.arraycopy(values, 0, v, 0, length);
+	    System.arraycopy(boxed, 0, b, 0, length);
+	    values = v;
+	    boxed = b;
+	}
+	if (x >= length) {
+	    length = x + 1;
+	}
+	values[x] = y;
+	boxed[x] = null;
+    }
+
+    /* In order to avoid cluttering the chart, the categories act as a
+       maximum width window on the bars. This positions the window after
+       the specified bar has changed. */
+    protected void moveWindow(int x) {
+	int s = 0, c, max, min;
+
+	if (count > 0) {
+	    max = start + count - 1;
+	    min = start;
 
 	    /* Perform a bit of heuristic window positioning so that
 	       changing data is displayed without causing the chart to
 	       jump around too much. */
-	    if (x < data.size() - window) {
+	    if (x < length - window) {
 		if (x > max + window) {
-		    start = x;
+		    s = x;
 		} else if (x > max) {
-		    start = max;
+		    s = max;
 		} else if (x > min + window) {
-		    start = x;
+		    s = x;
 		} else if (x > min) {
-		    start = min;
+		    s = min;
 		} else {
-		    start = x;
-		}	    
+		    s = x;
+		}            
 	    } else if (x - window >= 0) {
-		start = x - window;
+		s = x - window;
 	    } else {
-		start = 0;
+		s = 0;
 	    }
 	} 
 
-	categories.clear();
-	for (i = start; (i < data.size()) && (i < start + window); i++) {
-	    categories.add(i - start, new Integer(i));
+	c = Math.min(length - s, window);
+	if (s != start || c != count) {
+	    start = s;
+	    count = c;
+	    categories = null;
 	}
-		
-	/* Inform all relevant chart objects that the dataset has changed
-	   and should therefore be redrawn. */
-	notifyListeners(new DatasetChangeEvent(this));
-	return true;
     }
 
-    /* Empty the entire dataset. */
-    public void clear() {
-	data.clear();
-	categories.clear();
+    /* Enable or disable batching of change notifications. */
+    public void setBatching(boolean b) {
+	batching = b;
+	if (!b) {
+	    flush();
+	}
+    }
+
+    /* Notify the listeners if the dataset has changed since the last
+       notification. */
+    public void flush() {
+	if (changed) {
+	    changed = false;
+	    notifyListeners(new DatasetChangeEvent(this));
+	}
+    }
 
-	notifyListeners(new DatasetChangeEvent(this));
+    /* Inform all relevant chart objects that the dataset has changed,
+       or just note the change if notifications are being batched. */
+    protected void fireChanged() {
+	if (batching) {
+	    changed = true;
+	} else {
+	    notifyListeners(new DatasetChangeEvent(this));
+	}
     }
 }
@@ -0,0 +1,189 @@
+/* This class counts a stream of nonnegative values in bins in order to
+   estimate their probability density. Two kinds of bins are supported.
+   Bins of fixed width are suited to values of limited range. For heavy
+   tailed values, logarithmic bins in the manner of the HDR histogram of
+   Tene are used instead: each power of two above a minimum value is
+   divided into 2^bits bins of equal width, so that every bin is narrower
+   than a fixed fraction 2^-bits of its lower boundary. The bin of a value
+   is found from the exponent and leading mantissa bits of its floating
+   point representation, so that recording a value involves no division
+   or logarithm. Bin 0 holds all values below the first boundary
+   (including negative ones) in both cases. Histograms with the same bins
+   can be merged exactly. */
+class Histogram {
+    protected static final int MAX_BINS = 1 << 24; // limit on the bin count
+
+    protected boolean logarithmic;
+    protected double width;     // width of fixed bins
+    protected double scale;     // 1/width
+    protected int bits;         // number of bins per power of two is 2^bits
+    protected int minExponent;  // exponent of the first logarithmic boundary
+    protected double minValue;  // lower boundary of bin 1 (log bins only)
+
+    protected long[] counts = new long[16]; // number of values in each bin
+    protected int length = 0;   // number of bins up to the last nonempty one
+    protected long count = 0;   // number of values recorded in the bins
+    protected long overflow = 0; // number of values beyond the last bin
+
+    /* Construct a histogram with bins of width 0.5 starting at 0. */
+    Histogram() {
+	this(0.5);
+    }
+
+    /* Construct a histogram with bins of the specified width starting
+       at 0. */
+    Histogram(double w) {
+	if (!(w > 0)) {
+	    throw new IllegalArgumentException("Invalid bin width " + w);
+	}
+	width = w;
+	scale = 1 / w;
+    }
+
+    /* Construct a histogram with logarithmic bins. The first boundary is
+       the largest power of two not exceeding the specified minimum. */
+    Histogram(int b, double min) {
+	if (b < 0 || b > 20 || !(min >= Double.MIN_NORMAL)) {
+	    throw new IllegalArgumentException("Invalid logarithmic bins");
+	}
+	logarithmic = true;
+	bits = b;
+	minExponent = Math.getExponent(min);
+	minValue = Math.scalb(1.0, minExponent);
+    }
+
+    /* Return a new empty histogram with the same bins as this one. */
+    public Histogram create() {
+	return logarithmic ? new Histogram(bits, minValue) 
+	    : new Histogram(width);
+    }
+
+    /* Return a copy of the histogram that is unaffected by values
+       recorded in this one afterwards. */
+    public Histogram copy() {
+	Histogram h = create();
+
+	h.merge(this);
+	return h;
+    }
+
+    public boolean isLogarithmic() { return logarithmic; }
+    public long getCount() { return count + overflow; }
+    public long getOverflow() { return overflow; }
+
+    /* Return the number of bins up to and including the last one that is
+       not empty. */
+    public int getBinCount() { return length; }
+
+    /* Return the index of the bin containing the specified value, or -1
+       if the value lies beyond the last bin. */
+    public int index(double x) {
+	long b;
+	int i;
+
+	if (!logarithmic) {
+	    double v = x * scale;
+
+	    return v < 1 ? 0 : v < MAX_BINS ? (int) v : -1;
+	}
+	if (!(x >= minValue)) {
+	    return 0;
+	}
+	b = Double.doubleToRawLongBits(x);
+	i = (((int) (b >>> 52) - Double.MAX_EXPONENT - minExponent) << bits)
+	    + (int) ((b >>> (52 - bits)) & ((1 << bits) - 1)) + 1;
+	return i < MAX_BINS ? i : -1;
+    }
+
+    /* Return the lower boundary of the specified bin. */
+    public double getLower(int i) {
+	int n = 1 << bits;
+
+	if (!logarithmic) {
+	    return i * width;
+	} else if (i == 0) {
+	    return 0;
+	}
+	i--;
+	return Math.scalb(1 + (double) (i & (n - 1)) / n, 
+			  minExponent + (i >> bits));
+    }
+
+    /* Return the upper boundary of the specified bin. */
+    public double getUpper(int i) {
+	return getLower(i + 1);
+    }
+
+    /* Return the number of values counted in the specified bin. */
+    public long getCount(int i) {
+	return i >= 0 && i < length ? counts[i] : 0;
+    }
+
+    /* Return the fraction of all values recorded that fall in the
+       specified bin divided by the width of the bin, i.e., the empirical
+       density of the values in the bin. */
+    public double getDensity(int i) {
+	long n = getCount();
+
+	if (n == 0) {
+	    return 0;
+	}
+	return getCount(i) / (n * (getUpper(i) - getLower(i)));
+    }
+
+    /* Record a value. Returns the index of its bin, or -1 if the value
+       lies beyond the last bin. */
+    public int record(double x) {
+	int i = index(x);
+
+	if (i < 0) {
+	    overflow++;
+	    return i;
+	}
+	if (i >= length) {
+	    if (i >= counts.length) {
+		grow(i + 1);
+	    }
+	    length = i + 1;
+	}
+	counts[i]++;
+	count++;
+	return i;
+    }
+
+    /* Add the values counted by another histogram with the same bins to
+       this one. */
+    public void merge(Histogram h) {
+	int i;
+
+	if (h.logarithmic != logarithmic || h.width != width 
+	    || h.bits != bits || h.minExponent != minExponent) {
+	    throw new IllegalArgumentException("Incompatible histograms");
+	}
+	if (h.length > counts.length) {
+	    grow(h.length);
+	}
+	for (i = 0; i < h.length; i++) {
+	    counts[i] += h.counts[i];
+	}
+	length = Math.max(length, h.length);
+	count += h.count;
+	overflow += h.overflow;
+    }
+
+    /* Discard all recorded values. */
+    public void clear() {
+	java.util.Arrays.fill(counts, 0, length, 0);
+	length = 0;
+	count = overflow = 0;
+    }
+
+    /* Enlarge the count array so that it holds at least the specified
+       number of bins. */
+    private void grow(int n) {
+	long[] c = new long[Math.max(n, 2*counts.length)];
+
+	System.arraycopy(counts, 0, c, 0, length);
+	counts = c;
+    }
+}
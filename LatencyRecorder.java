@@ -0,0 +1,98 @@
+/* This class records a distribution of durations in nanoseconds with
+   little overhead. Durations are counted in logarithmic buckets: each
+   power of two is divided into eight buckets of equal width, so that
+   the quantiles are accurate to within 12.5%. The bucket of a duration
+   is found from the position of its leading bit, and the bucket array
+   is allocated once, so recording a duration takes a few instructions
+   and never allocates. The recorder is meant to be written by a single
+   thread; other threads may read it at any time, but may then see
+   slightly stale values. */
+class LatencyRecorder {
+    protected static final int BITS = 3;
+    protected static final int BUCKETS = (62 - 1) << BITS;
+
+    protected long[] counts = new long[BUCKETS];
+    protected volatile long count = 0;
+    protected long sum = 0;
+    protected long max = 0;
+
+    /* Return the bucket of the specified duration. */
+    protected static int index(long v) {
+	int e;
+
+	if (v < (1 << BITS)) {
+	    return v < 0 ? 0 : (int) v;
+	}
+	e = 63 - Long.numberOfLeadingZeros(v);
+	return ((e - BITS + 1) << BITS) + 
+	    (int) ((v >>> (e - BITS)) & ((1 << BITS) - 1));
+    }
+
+    /* Return the smallest duration counted in the specified bucket. */
+    protected static long lowerBound(int i) {
+	int e = (i >> BITS) + BITS - 1;
+
+	if (i < (1 << BITS)) {
+	    return i;
+	}
+	return (long) ((1 << BITS) + (i & ((1 << BITS) - 1))) << (e - BITS);
+    }
+
+    /* Record a duration in nanoseconds. */
+    public void record(long ns) {
+	counts[index(ns)]++;
+	sum += ns;
+	if (ns > max) {
+	    max = ns;
+	}
+	count++;
+    }
+
+    public long getCount() { return count; }
+    public long getMax() { return max; }
+
+    /* Return the mean duration, or NaN if none have been recorded. */
+    public double getMean() {
+	long n = count;
+
+	return n > 0 ? (double) sum / n : Double.NaN;
+    }
+
+    /* Return an estimate of the q-quantile (0 <= q <= 1) of the
+       durations recorded, i.e., the upper bound of the bucket in which
+       it lies, or 0 if none have been recorded. */
+    public long getQuantile(double q) {
+	long n = count, seen = 0;
+	int i;
+
+	if (n == 0) {
+	    return 0;
+	}
+	for (i = 0; i < BUCKETS - 1; i++) {
+	    seen += counts[i];
+	    if (seen > q * (n - 1)) {
+		break;
+	    }
+	}
+	return Math.min(lowerBound(i + 1) - 1, max);
+    }
+
+    /* Add the durations recorded by another recorder to this one. */
+    public void merge(LatencyRecorder r) {
+	int i;
+
+	for (i = 0; i < BUCKETS; i++) {
+	    counts[i] += r.counts[i];
+	}
+	sum += r.sum;
+	max = Math.max(max, r.max);
+	count += r.count;
+    }
+
+    /* Discard all recorded durations. */
+    public void clear() {
+	java.util.Arrays.fill(counts, 0);
+	sum = max = 0;
+	count = 0;
+    }
+}
@@ -1,9 +1,13 @@
 /* Import necessary JDK packages. */
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.border.Border;
+import javax.swing.event.*;
 
 /* Import JRefinery packages used to display plots. */
 import com.jrefinery.data.*;
@@ -22,13 +26,39 @@ import com.jrefinery.chart.*;
 public class MarkovApplet extends JApplet implements Runnable, ActionListener {
     
     MarkovQueue queue;               // the simulation queue
-    QueueStateDataset stateEvolData; // dataset used to plot state evolution
+    DecimatedStateDataset stateEvolData; // used to plot state evolution
     HistDataset stateFreqData;
     HistDataset arrivalProbData;     // used to plot arrival probabilites
     RealHistDataset serviceProbData; // used to plot service probabilites
+    FrameNotifier notifier;          // redraws the charts once per frame
+    TransientSolver exact;           // computes the expected visits
+    SimulationMetrics metrics;       // throughput and latency metrics
+    static final AtomicInteger instances = new AtomicInteger(); // JMX ids
+    protected double frameRate = 25; // maximum chart redraws per second
     
     Thread thread = null;            // the thread that runs the simulation
-    protected boolean done = true;   // a flag used to by the thread
+    protected volatile boolean done = true; // a flag used to by the thread
+    protected SpscQueue channel;     // passes steps to the dispatch thread
+    protected int delay = 200;       // pause between steps in milliseconds
+
+    /* A recorded trace may be replayed instead of running a queue. */
+    protected TraceReplay replay = null;   // the trace being replayed
+    protected volatile double speed = 1;   // simulated time per second
+    protected JSlider positionSlider;      // seeks within the trace
+    protected boolean updatingPosition = false; // slider moved by replay
+
+    /* Number of steps handed to the event dispatching thread at once. */
+    protected static final int BATCH_SIZE = 1024;
+
+    /* Longest time spent applying steps to the datasets in one frame. */
+    protected static final long FRAME_BUDGET = 20000000; // nanoseconds
+
+    /* Largest number of state updates the transient solver may perform
+       in one frame. */
+    protected static final double EXACT_BUDGET = 2e6;
+
+    /* Truncation error of the transient solution. */
+    protected double epsilon = 1e-9;
 
     ParamDialog paramDialog; // the simulation parameter setting dialog box
 
@@ -37,6 +67,7 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
     protected double tickValue = 0.1;
     protected double lambdaValue = 1;
     protected double muValue = 1;
+    protected boolean eventValue = false; // use the next-event engine
 
     /* Simulation control buttons. */
     protected JButton startButton, stopButton, resetButton, settingsButton;
@@ -48,6 +79,12 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
     /* Applet initialization method. */
     public void init() {
 
+	/* Expose the throughput of the simulation and the cost of
+	   displaying it over JMX. */
+	metrics = new SimulationMetrics();
+	metrics.register("markovapplet:type=SimulationMetrics,id=" + 
+			 instances.incrementAndGet());
+
 	/* Set up a panel containing the simulation parameters and current
 	   status. */
 	JPanel statusPanel = new JPanel();
@@ -102,15 +139,17 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 						"State", "Number of visits",
 						stateFreqData, false);
 	JFreeChartPanel stateFreqChartPanel =
-	    new JFreeChartPanel(stateFreqChart, 300, 300, false, 300, 300);
+	    createChartPanel(stateFreqChart, 300, 300);
 
 
-	stateEvolData = new QueueStateDataset();
+	/* The entire state evolution is plotted, decimated to one bucket of
+	   entries per column of the 300 pixel wide chart. */
+	stateEvolData = new DecimatedStateDataset(300);
 	JFreeChart stateEvolChart = 
 	    ChartFactory.createXYChart("Queue State Evolution", "Time", 
 				       "State", stateEvolData, false);
 	JFreeChartPanel stateEvolChartPanel = 
-	    new JFreeChartPanel(stateEvolChart, 300, 300, false, 300, 300);
+	    createChartPanel(stateEvolChart, 300, 300);
 
 	chartPanel1.add(stateFreqChartPanel);
 	chartPanel1.add(stateEvolChartPanel);
@@ -126,21 +165,90 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 						"Probability", 
 						arrivalProbData, false);
 	JFreeChartPanel arrivalProbChartPanel = 
-	    new JFreeChartPanel(arrivalProbChart, 300, 150, false, 300, 150);
+	    createChartPanel(arrivalProbChart, 300, 150);
 
-	serviceProbData = new RealHistDataset(15);
+	serviceProbData = new RealHistDataset(15, createServiceHistogram());
 	JFreeChart serviceProbChart = 
 	    ChartFactory.createVerticalBarChart("Service Length Distribution",
 						"Service length",
-						"Probability",
+						"Density",
 						serviceProbData, false);
 	JFreeChartPanel serviceProbChartPanel = 
-	    new JFreeChartPanel(serviceProbChart, 300, 150, false, 300, 150);
+	    createChartPanel(serviceProbChart, 300, 150);
 
 	chartPanel2.add(arrivalProbChartPanel);
 	chartPanel2.add(serviceProbChartPanel);
 	chartPanel2.add(Box.createRigidArea(new Dimension(15, 0)));
 
+	/* Hold back the change notifications of the datasets so that the
+	   charts are redrawn at most once per frame rather than after
+	   every change. The frame rate may be set with an applet
+	   parameter. */
+	String rate = getParameter("framerate");
+	if (rate != null) {
+	    try {
+		frameRate = Double.parseDouble(rate);
+	    } catch (NumberFormatException e) {
+		frameRate = 0;
+	    }
+	    if (!(frameRate > 0)) {
+		System.out.println("Invalid frame rate " + rate);
+		frameRate = 25;
+	    }
+	}
+	notifier = new FrameNotifier(frameRate);
+	notifier.addActionListener(new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+		    drainSteps();
+		}
+	    });
+	notifier.add(stateFreqData);
+	notifier.add(stateEvolData);
+	notifier.add(arrivalProbData);
+	notifier.add(serviceProbData);
+	notifier.start();
+
+	/* The pause between simulation steps may also be set with an
+	   applet parameter; a delay of 0 runs the simulation as fast as
+	   possible. */
+	String d = getParameter("delay");
+	if (d != null) {
+	    try {
+		delay = Integer.parseInt(d);
+	    } catch (NumberFormatException e) {
+		System.out.println("Invalid delay " + d);
+	    }
+	}
+
+	/* The truncation error of the expected visit counts may also be
+	   set with an applet parameter. */
+	String eps = getParameter("epsilon");
+	if (eps != null) {
+	    try {
+		epsilon = Double.parseDouble(eps);
+	    } catch (NumberFormatException e) {
+		epsilon = 0;
+	    }
+	    if (!(epsilon > 0 && epsilon < 1)) {
+		System.out.println("Invalid epsilon " + eps);
+		epsilon = 1e-9;
+	    }
+	}
+
+	/* If a trace is specified, replay it rather than simulating a
+	   queue. */
+	String trace = getParameter("trace");
+	JPanel replayPanel = null;
+	if (trace != null) {
+	    try {
+		replay = new TraceReplay(trace);
+		replayPanel = createReplayPanel();
+	    } catch (IOException e) {
+		System.out.println("Cannot open trace " + trace + ": " + 
+				   e.getMessage());
+	    }
+	}
+
 	/* Use the applet's action listener to process events. */
 	startButton.addActionListener(this);
 	stopButton.addActionListener(this);
@@ -154,6 +262,53 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 	cp.add(chartPanel1);
 	cp.add(chartPanel2);
 	cp.add(buttonPanel);    
+	if (replayPanel != null) {
+	    cp.add(replayPanel);
+	}
+    }
+
+    /* Set up a panel containing the controls used to replay a trace,
+       i.e., a slider that seeks to any time in the trace and a choice
+       of replay speeds. The simulation parameters are those of the
+       recorded queue and cannot be changed. */
+    protected JPanel createReplayPanel() {
+	SimulationSettings s = replay.getSettings();
+	JPanel panel = new JPanel();
+	final JComboBox speedBox = 
+	    new JComboBox(new String[] {"1x", "10x", "100x", "1000x"});
+
+	serverValue = s.getServers();
+	tickValue = s.getTick();
+	lambdaValue = s.getLambda();
+	muValue = s.getMu();
+	eventValue = s.getEvent();
+	settingsButton.setEnabled(false);
+
+	panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
+	positionSlider = new JSlider(0, 1000, 0);
+	positionSlider.addChangeListener(new ChangeListener() {
+		public void stateChanged(ChangeEvent e) {
+		    if (!updatingPosition 
+			&& !positionSlider.getValueIsAdjusting()) {
+			seekReplay(positionSlider.getValue() / 1000.0 * 
+				   replay.getEndTime());
+		    }
+		}
+	    });
+	speedBox.addActionListener(new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+		    speed = Math.pow(10, speedBox.getSelectedIndex());
+		}
+	    });
+
+	panel.add(Box.createRigidArea(new Dimension(10, 0)));
+	panel.add(new JLabel("Replay position: "));
+	panel.add(positionSlider);
+	panel.add(Box.createRigidArea(new Dimension(10, 0)));
+	panel.add(new JLabel("Speed: "));
+	panel.add(speedBox);
+	panel.add(Box.createRigidArea(new Dimension(10, 0)));
+	return panel;
     }
 
     /* Start the applet. */
@@ -182,7 +337,14 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 
     /* Reset the simulation. */
     public void reset() {
+	if (replay != null) {
+	    seekReplay(0);
+	    System.out.println("Replay reset");
+	    return;
+	}
 	done = true;
+	channel = null;
+	exact = null;
 
 	stateFreqData.clear();
 	arrivalProbData.clear();
@@ -195,7 +357,8 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 	stopButton.setEnabled(false);
 	settingsButton.setEnabled(true);
 
-	System.out.println("Simulation reset");
+	System.out.println("Simulation reset: " + metrics);
+	metrics.reset();
     }
 
     /* Update the status fields. */
@@ -219,7 +382,7 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
        change dialog box. */
     public void changeParameters() {
 	ParamDialog dialog = new ParamDialog(null,
-           serverValue, tickValue, lambdaValue, muValue);
+           serverValue, tickValue, lambdaValue, muValue, eventValue);
 	dialog.pack(); 
 	dialog.show();	    
 	
@@ -230,56 +393,278 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 	tickValue = dialog.getTickValue();
 	lambdaValue = dialog.getLambdaValue();
 	muValue = dialog.getMuValue();
+	eventValue = dialog.getEventValue();
 
 	/* Display parameter changes on the console for debugging purposes. */
 	System.out.println("Parameters updated: servers = " + serverValue + 
 			   ", tick = " + tickValue + 
 			   ", lambda = " + lambdaValue + 
-			   ", mu = " + muValue);
+			   ", mu = " + muValue + 
+			   ", next-event = " + eventValue);
+    }
+
+    /* Create a new queue with the current simulation parameters using
+       whichever simulation engine has been selected. */
+    public MarkovQueue createQueue() {
+	if (eventValue) {
+	    return new EventMarkovQueue(serverValue, tickValue, 
+					lambdaValue, muValue);
+	} else {
+	    return new MarkovQueue(serverValue, tickValue, 
+				   lambdaValue, muValue);
+	}
+    }
+
+    /* Stop the thread that runs the simulation or replay and wait for
+       it to finish. */
+    protected void halt() {
+	done = true;
+	if (thread != null) {
+	    thread.resume();
+	    try {
+		thread.join();
+	    } catch (InterruptedException e) {
+		System.out.println("Interrupted while stopping the thread");
+	    }
+	    thread = null;
+	}
+	channel = null;
+    }
+
+    /* Move the replay to the specified time. The charts are cleared and
+       show the trace from that time onward. If the replay was running,
+       it continues from the new position. */
+    public void seekReplay(double t) {
+	boolean running = thread != null && !done && stopButton.isEnabled();
+
+	halt();
+	stateFreqData.clear();
+	arrivalProbData.clear();
+	serviceProbData.clear();
+	stateEvolData.clear();
+	try {
+	    replay.seek(t);
+	} catch (IOException e) {
+	    System.out.println("Cannot read trace: " + e.getMessage());
+	}
+	updateStatusFields(replay.getTime(), replay.getState(), 0, 0);
+	updatePosition(replay.getTime());
+
+	if (running) {
+	    done = false;
+	    channel = new SpscQueue(64);
+	    thread = new Thread(this);
+	    thread.start();
+	} else {
+	    startButton.setEnabled(true);
+	    stopButton.setEnabled(false);
+	}
+    }
+
+    /* Move the replay position slider to the specified time without
+       seeking. */
+    protected void updatePosition(double t) {
+	double end = replay.getEndTime();
+
+	updatingPosition = true;
+	positionSlider.setValue(end > 0 ? (int) (1000 * t / end) : 0);
+	updatingPosition = false;
     }
 
-    /* This is the body of the thread that runs the queue simulation. */
+    /* This is the body of the thread that runs the queue simulation.
+       The thread never touches the user interface; the outcomes of
+       the steps are collected in batches that are handed over to the
+       event dispatching thread through a lock-free queue. */
     public void run() {
+	MarkovQueue q = queue;
+	SpscQueue c = channel;
+	StepBatch batch = new StepBatch(BATCH_SIZE);
+
+	if (replay != null) {
+	    runReplay();
+	    return;
+	}
 
 	/* Run the simulation until the done flag is set. */
 	while(!done) {
 
 	    /* Advance forward by one time interval. */
-	    queue.simulateStep();	    
-
-	    /* Get queue status data. */
-	    double t = queue.getTime();
-	    int s = queue.getState();
-	    int a = queue.getLastArrivals();
-	    int d = queue.getLastDepartures();
-
-	    /* Update chart datasets. */
-	    stateEvolData.add(t, s);
-	    updateStatusFields(t, s, a, d);
- 
-	    Double currVal = (Double) (stateFreqData.getValue(0, 
-							      new Integer(s)));
-	    stateFreqData.add(s, currVal.doubleValue() + 1);
-	    arrivalProbData.add(a, probPoisson(lambdaValue, tickValue, a));
+	    metrics.beginStep();
+	    q.simulateStep();	    
+	    metrics.endStep(q);
+	    batch.add(q);
+
+	    /* Hand over the batch when it is full, or as soon as the
+	       dispatching thread has caught up with the previous ones.
+	       If the dispatching thread falls behind, wait for it. */
+	    if (batch.isFull() || c.isEmpty()) {
+		while (!c.offer(batch) && !done) {
+		    LockSupport.parkNanos(1000000);
+		}
+		batch = new StepBatch(BATCH_SIZE);
+	    }
 
-	    Vector v = queue.getLastServiceLengths();
-	    int i;
+	    /* Pause the thread a moment before running the loop again. */
+	    if (delay > 0) {
+		try {	
+		    Thread.sleep(delay);
+		} catch (InterruptedException e) {
+		    System.out.println("Queue thread interrupted");
+		}
+	    }
+	}
+    }
 
-	    for (i = 0; i < v.size(); i++) {
-		Double dd = (Double) v.get(i);
-		serviceProbData.add(dd.doubleValue(), probExponential(muValue, 
-						       dd.doubleValue()));
+    /* This is the body of the thread that replays a trace. Steps are
+       replayed as the simulated time given by the speed elapses, and
+       are handed over to the event dispatching thread in the same way
+       as the steps of a running simulation. */
+    protected void runReplay() {
+	TraceReplay r = replay;
+	SpscQueue c = channel;
+	StepBatch batch = new StepBatch(BATCH_SIZE);
+	double rate = speed, from = r.getTime();
+	long start = System.nanoTime();
+
+	try {
+	    while (!done && (r.hasNext() || batch.size() > 0)) {
+
+		/* Restart the clock whenever the speed is changed. */
+		if (speed != rate) {
+		    rate = speed;
+		    from = r.getTime();
+		    start = System.nanoTime();
+		}
+		r.fill(batch, 
+		       from + rate * (System.nanoTime() - start) / 1e9);
+
+		if (batch.size() > 0 && (batch.isFull() || c.isEmpty())) {
+		    while (!c.offer(batch) && !done) {
+			LockSupport.parkNanos(1000000);
+		    }
+		    batch = new StepBatch(BATCH_SIZE);
+		} else {
+		    LockSupport.parkNanos(1000000);
+		}
 	    }
+	} catch (IOException e) {
+	    System.out.println("Cannot read trace: " + e.getMessage());
+	}
+    }
 
-	    /* Pause the thread a moment before running the loop again. */
-	    try {	
-		Thread.sleep(200);
-	    } catch (InterruptedException e) {
-		System.out.println("Queue thread interrupted");
+    /* Apply the steps handed over by the simulation thread to the chart
+       datasets and status fields. This is called on the event
+       dispatching thread at the start of each frame, and stops after
+       the frame's time budget has been used so that the user interface
+       stays responsive. */
+    public void drainSteps() {
+	long deadline = System.nanoTime() + FRAME_BUDGET, start;
+	StepBatch b;
+	int n;
+
+	while (channel != null && (b = (StepBatch) channel.poll()) != null) {
+	    start = System.nanoTime();
+	    applySteps(b);
+	    metrics.recordDatasetUpdate(System.nanoTime() - start);
+
+	    n = b.size() - 1;
+	    updateStatusFields(b.getTime(n), b.getState(n), 
+			       b.getArrivals(n), b.getDepartures(n));
+	    if (replay != null && !positionSlider.getValueIsAdjusting()) {
+		updatePosition(b.getTime(n));
+	    }
+	    if (exact != null) {
+		updateExpected(b.getTime(n));
+	    }
+	    if (System.nanoTime() > deadline) {
+		break;
 	    }
 	}
     }
 
+    /* Show the expected number of visits to each state up to the
+       specified time next to the simulated counts. Since a visit is
+       counted at the end of every step, the expected count is the sum
+       of the transient probabilities of the state at the ends of the
+       steps, which the trapezoidal rule relates to the expected time
+       spent in the state. If the solver can no longer keep up with the
+       simulation, e.g., because an unstable queue has grown very long,
+       the expected counts are removed. */
+    protected void updateExpected(double t) {
+	double dt = t - exact.getTime();
+	double[] e;
+	int k;
+
+	if (exact.getCost(dt) > EXACT_BUDGET) {
+	    System.out.println("Expected visits are too costly to compute");
+	    exact = null;
+	    stateFreqData.setExpected(null);
+	    return;
+	}
+	exact.advance(dt);
+	e = new double[exact.getStateCount()];
+	for (k = 0; k < e.length; k++) {
+	    e[k] = exact.getTimeIntegral(k) / tickValue + 
+		(exact.getProbability(k) - (k == 0 ? 1 : 0)) / 2;
+	}
+	stateFreqData.setExpected(e);
+    }
+
+    /* Create a panel that displays the specified chart and records the
+       time taken to repaint it. */
+    protected JFreeChartPanel createChartPanel(JFreeChart chart, 
+					       int width, int height) {
+	return new JFreeChartPanel(chart, width, height, false, 
+				   width, height) {
+		public void paintComponent(Graphics g) {
+		    long start = System.nanoTime();
+
+		    super.paintComponent(g);
+		    metrics.recordRepaint(System.nanoTime() - start);
+		}
+	    };
+    }
+
+    /* Create the histogram in which the service lengths are counted.
+       By default, the bins are of width 0.5; the width may be set with
+       the binwidth applet parameter. Alternatively, the logbins
+       parameter selects logarithmic bins, with each power of two above
+       1/64 divided into 2^logbins bins. */
+    protected Histogram createServiceHistogram() {
+	String w = getParameter("binwidth");
+	String b = getParameter("logbins");
+
+	try {
+	    if (b != null) {
+		return new Histogram(Integer.parseInt(b), 1.0/64);
+	    } else if (w != null) {
+		return new Histogram(Double.parseDouble(w));
+	    }
+	} catch (IllegalArgumentException e) {
+	    System.out.println("Invalid service histogram parameters");
+	}
+	return new Histogram();
+    }
+
+    /* Update the chart datasets with a batch of steps. */
+    protected void applySteps(StepBatch b) {
+	int i;
+
+	for (i = 0; i < b.size(); i++) {
+	    int s = b.getState(i);
+	    int a = b.getArrivals(i);
+
+	    stateEvolData.add(b.getTime(i), s);
+	    stateFreqData.increment(s);
+	    arrivalProbData.add(a, probPoisson(lambdaValue, tickValue, a));
+	}
+
+	for (i = 0; i < b.getServiceCount(); i++) {
+	    double x = b.getService(i);
+	    serviceProbData.record(x);
+	}
+    }
+
     /* Handle action events generated by applet controls. */
     public void actionPerformed(ActionEvent e) {
 
@@ -302,8 +687,12 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 		settingsButton.setEnabled(false);
 
 		done = false;
-		queue = new MarkovQueue(serverValue, tickValue, 
-					lambdaValue, muValue);
+		if (replay == null) {
+		    queue = createQueue();
+		    exact = new TransientSolver(serverValue, lambdaValue, 
+						muValue, epsilon);
+		}
+		channel = new SpscQueue(64);
 		thread = new Thread(this);
 		thread.start();
 
@@ -333,6 +722,8 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
     
     /* Clean up before exiting. */
     public void destroy() {
+	notifier.stop();
+	metrics.unregister();
 
 	/* Stop and discard the thread. */
 	if (thread != null) {
@@ -344,7 +735,7 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
     /* Calculate the probability that a Poisson random value
        with the specified parameters assumes the specified value. */
     public double probPoisson(double l, double t, int k) {
-	return Math.exp(-l*t)*Math.pow(l*t, k)/factorial(k);
+	return QueueTheory.poissonProbability(l*t, k);
     }
 
     /* Calculate the probability that an exponential random value
@@ -354,18 +745,4 @@ public class MarkovApplet extends JApplet implements Runnable, ActionListener {
 	return 1 - Math.exp(-l*x);
     }
 
-    /* Calculate the factorial of the specified number. */
-    private int factorial(int k) {
-	int f = k;
-	int temp = f;
-
-	if (f == 0) { f = 1; }
-
-	while (temp > 2) {
-	    temp--;
-	    f *= temp;
-	} 
-
-	return f;
-    }
 }
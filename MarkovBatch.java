@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/* This class runs a queue simulation without a user interface. It
+   takes the same parameters as the applet's settings dialog on the
+   command line, runs the simulation as fast as possible for the given
+   number of steps or length of simulated time, and prints summary
+   statistics. If several replications are requested, they are run in
+   parallel and confidence intervals are printed. The events of a
+   single run may also be recorded in a binary trace, and its results
+   exported in CSV or columnar format. Alternatively, the replications
+   may be run in lockstep as the lanes of a single QueueBatch. No AWT or
+   Swing classes are loaded. */
+public class MarkovBatch {
+    protected SimulationSettings settings = new SimulationSettings();
+    protected long seed = System.nanoTime();
+    protected int replications = 1;
+    protected int threads = Runtime.getRuntime().availableProcessors();
+    protected String trace = null; // prefix of the trace segment files
+    protected TraceRecorder recorder = null;
+    protected String export = null; // prefix of the exported tables
+    protected boolean columnar = false; // export in columnar format
+    protected boolean lockstep = false; // run replications as a QueueBatch
+    protected double epsilon = 0;   // transient solution error (0: none)
+
+    /* Largest number of state updates spent on the transient solution. */
+    protected static final double MAX_TRANSIENT_COST = 1e9;
+
+    /* Number of increments in which the transient solution is advanced. */
+    protected static final int TRANSIENT_STEPS = 1000;
+
+    public static void main(String[] args) {
+	MarkovBatch batch = new MarkovBatch();
+
+	if (!batch.parseArgs(args)) {
+	    usage();
+	    System.exit(1);
+	}
+	batch.run();
+    }
+
+    /* Print a summary of the command line options. */
+    protected static void usage() {
+	System.err.println(
+	    "Usage: java MarkovBatch [options]\n" +
+	    "  -s <servers>  number of servers; negative means infinity (e.g. -1) (1)\n" +
+	    "  -t <tick>     time increment (0.1)\n" +
+	    "  -l <lambda>   arrival rate (1.0)\n" +
+	    "  -m <mu>       service rate (1.0)\n" +
+	    "  -e            use the next-event engine; steps then count\n" +
+	    "                single events rather than ticks\n" +
+	    "  -g            track only the number of customers, using\n" +
+	    "                constant memory (no customer statistics)\n" +
+	    "  -n <steps>    maximum number of steps (1000000)\n" +
+	    "  -T <time>     maximum simulated time (unlimited)\n" +
+	    "  -r <seed>     random seed (arbitrary)\n" +
+	    "  -R <count>    number of independent replications (1)\n" +
+	    "  -p <threads>  number of worker threads (all processors)\n" +
+	    "  -E <epsilon>  also compute the exact transient solution,\n" +
+	    "                truncated at the given total error (none)\n" +
+	    "  -L            run the replications in lockstep in a single\n" +
+	    "                thread, tracking only the number of customers\n" +
+	    "  -o <prefix>   record the events of a single run in the trace\n" +
+	    "                files <prefix>-00000.trace, ... (none)\n" +
+	    "  -x <prefix>   export the results of a single run to the CSV\n" +
+	    "                files <prefix>-steps.csv, ... (none)\n" +
+	    "  -b            export in columnar binary format instead");
+    }
+
+    /* Set the parameters from the command line. Returns false if the
+       arguments are not valid. */
+    protected boolean parseArgs(String[] args) {
+	int s = settings.getServers();
+	double t = settings.getTick();
+	double l = settings.getLambda();
+	double m = settings.getMu();
+	boolean e = settings.getEvent();
+	boolean g = settings.getAggregate();
+	long n = settings.getMaxSteps();
+	double T = settings.getMaxTime();
+	int i;
+
+	try {
+	    for (i = 0; i < args.length; i++) {
+		String a = args[i];
+
+		if (a.equals("-e")) {
+		    e = true;
+		} else if (a.equals("-g")) {
+		    g = true;
+		} else if (a.equals("-b")) {
+		    columnar = true;
+		} else if (a.equals("-L")) {
+		    lockstep = true;
+		} else if (i + 1 >= args.length) {
+		    return false;
+		} else if (a.equals("-s")) {
+		    s = Integer.parseInt(args[++i]);
+		} else if (a.equals("-t")) {
+		    t = Double.parseDouble(args[++i]);
+		} else if (a.equals("-l")) {
+		    l = Double.parseDouble(args[++i]);
+		} else if (a.equals("-m")) {
+		    m = Double.parseDouble(args[++i]);
+		} else if (a.equals("-n")) {
+		    n = Long.parseLong(args[++i]);
+		} else if (a.equals("-T")) {
+		    T = Double.parseDouble(args[++i]);
+		} else if (a.equals("-r")) {
+		    seed = Long.parseLong(args[++i]);
+		} else if (a.equals("-R")) {
+		    replications = Integer.parseInt(args[++i]);
+		} else if (a.equals("-p")) {
+		    threads = Integer.parseInt(args[++i]);
+		} else if (a.equals("-E")) {
+		    epsilon = Double.parseDouble(args[++i]);
+		    if (!(epsilon > 0 && epsilon < 1)) {
+			return false;
+		    }
+		} else if (a.equals("-o")) {
+		    trace = args[++i];
+		} else if (a.equals("-x")) {
+		    export = args[++i];
+		} else {
+		    return false;
+		}
+	    }
+	} catch (NumberFormatException ex) {
+	    return false;
+	}
+
+	settings = new SimulationSettings(s, t, l, m, e);
+	settings.setLimits(n, T);
+	settings.setAggregate(g);
+
+	/* Apply the same checks as the settings dialog. */
+	if (!settings.isValid() || replications < 1 || threads < 1) {
+	    System.err.println("The number of servers must be nonzero, " +
+			       "the rates and time increment positive, " +
+			       "and the replication and thread counts " +
+			       "at least 1.");
+	    return false;
+	}
+	if ((trace != null || export != null) && replications > 1) {
+	    System.err.println("Only a single run can be recorded or " + 
+			       "exported.");
+	    return false;
+	}
+	if (g && (trace != null || export != null)) {
+	    System.err.println("The birth-death engine does not follow " +
+			       "individual customers, so its runs cannot " + 
+			       "be recorded or exported.");
+	    return false;
+	}
+	if (lockstep && (trace != null || export != null || e)) {
+	    System.err.println("Lockstep replications cannot be recorded, " +
+			       "exported or run with the next-event engine.");
+	    return false;
+	}
+	return true;
+    }
+
+    /* Run the simulation and print the results. */
+    public void run() {
+	long start = System.nanoTime();
+	RandomSource r = new XoroshiroRandom(seed);
+	RunStatistics stats;
+	ReplicationResult result = null;
+
+	if (lockstep) {
+	    runLockstep(r, start);
+	    return;
+	}
+	if (trace != null || export != null) {
+	    stats = record(r);
+	} else if (replications == 1) {
+	    stats = settings.run(r);
+	} else {
+	    ForkJoinPool pool = new ForkJoinPool(threads);
+	    result = new ReplicationRunner(settings, replications, 
+					   r, pool).run();
+	    pool.shutdown();
+	    stats = result.getMerged();
+	}
+	double elapsed = (System.nanoTime() - start) / 1e9;
+
+	System.out.println(settings + ", seed = " + seed);
+	print(stats);
+	if (result != null) {
+	    print(result);
+	}
+	print(new QueueTheory(settings.getServers(), settings.getLambda(), 
+			      settings.getMu()));
+	if (epsilon > 0) {
+	    printTransient(stats.getElapsedTime() / replications);
+	}
+	System.out.println("cpu time:          " + elapsed + " s (" +
+			   (long) (stats.getSteps() / elapsed) + 
+			   " steps/s)");
+	if (recorder != null) {
+	    System.out.println("trace:             " + recorder.getCount() + 
+			       " events in " + recorder.getSegmentCount() + 
+			       " segments");
+	}
+    }
+
+    /* Run the replications in lockstep and print their estimates. Each
+       queue advances by the same number of ticks, so the step limit is
+       reduced to respect the time limit. */
+    protected void runLockstep(RandomSource r, long start) {
+	QueueBatch batch = new QueueBatch(replications, settings, r);
+	long n = settings.getMaxSteps();
+	double level = 0.95;
+	double elapsed;
+
+	if (settings.getMaxTime() / settings.getTick() < n) {
+	    n = (long) Math.ceil(settings.getMaxTime() / settings.getTick());
+	}
+	batch.run(n);
+	elapsed = (System.nanoTime() - start) / 1e9;
+
+	System.out.println(settings + ", seed = " + seed);
+	System.out.println("steps:             " + batch.getSteps());
+	System.out.println("simulated time:    " + batch.getTime());
+	System.out.println(replications + " lockstep replications, " + 
+			   Math.round(100 * level) + 
+			   "% confidence intervals:");
+	System.out.println("mean queue state:  " + 
+			   batch.estimate(ReplicationResult.MEAN_STATE, level));
+	System.out.println("mean waiting:      " + 
+			   batch.estimate(ReplicationResult.MEAN_WAITING, 
+					  level));
+	System.out.println("utilization:       " + 
+			   batch.estimate(ReplicationResult.UTILIZATION, 
+					  level));
+	System.out.println("throughput:        " + 
+			   batch.estimate(ReplicationResult.THROUGHPUT, level));
+	print(new QueueTheory(settings.getServers(), settings.getLambda(), 
+			      settings.getMu()));
+	if (epsilon > 0) {
+	    printTransient(batch.getTime());
+	}
+	System.out.println("cpu time:          " + elapsed + " s (" +
+			   (long) (batch.getSteps() * replications / elapsed) + 
+			   " queue-steps/s)");
+    }
+
+    /* Run the simulation while recording its events in a trace and/or
+       exporting its results, and return its statistics. */
+    protected RunStatistics record(RandomSource r) {
+	MarkovQueue queue = settings.createQueue(r);
+	ResultExporter exporter = null;
+	RunStatistics stats;
+
+	try {
+	    if (trace != null) {
+		recorder = new TraceRecorder(trace, settings);
+		queue.addListener(recorder);
+	    }
+	    if (export != null) {
+		exporter = new ResultExporter(export, columnar);
+		queue.addListener(exporter);
+	    }
+	    stats = settings.simulate(queue, exporter);
+	    if (recorder != null) {
+		recorder.setEndTime(queue.getTime());
+		recorder.close();
+	    }
+	    if (exporter != null) {
+		exporter.close();
+	    }
+	} catch (IOException e) {
+	    System.err.println("Cannot write results: " + e.getMessage());
+	    System.exit(1);
+	    return null;
+	}
+	return stats;
+    }
+
+    /* Print the statistics accumulated by a run. */
+    protected void print(RunStatistics stats) {
+	System.out.println("steps:             " + stats.getSteps());
+	System.out.println("simulated time:    " + stats.getElapsedTime());
+	System.out.println("arrivals:          " + stats.getArrivals());
+	System.out.println("departures:        " + stats.getDepartures());
+	System.out.println("max queue state:   " + stats.getMaxState());
+	System.out.println("mean queue state:  " + stats.getMeanState());
+	System.out.println("state variance:    " + stats.getStateVariance());
+	System.out.println("mean waiting:      " + stats.getMeanWaiting());
+	System.out.println("utilization:       " + stats.getUtilization());
+	System.out.println("throughput:        " + stats.getThroughput());
+	System.out.println("mean sojourn:      " + stats.getMeanSojourn());
+	System.out.println("mean wait:         " + stats.getMeanWait());
+	if (!stats.hasCustomers()) {
+	    return;
+	}
+	System.out.println("wait p50/p99/p999: " + 
+			   stats.getWaitQuantile(0.5) + " / " + 
+			   stats.getWaitQuantile(0.99) + " / " + 
+			   stats.getWaitQuantile(0.999));
+	System.out.println("sojourn p50/p99/p999: " + 
+			   stats.getSojournQuantile(0.5) + " / " + 
+			   stats.getSojournQuantile(0.99) + " / " + 
+			   stats.getSojournQuantile(0.999));
+    }
+
+    /* Print the steady-state values predicted by queueing theory. */
+    protected void print(QueueTheory theory) {
+	if (!theory.isStable()) {
+	    System.out.println("The queue has no steady state.");
+	    return;
+	}
+	System.out.println("steady state (analytic):");
+	System.out.println("mean queue state:  " + theory.getMeanState());
+	System.out.println("mean waiting:      " + theory.getMeanWaiting());
+	System.out.println("utilization:       " + theory.getUtilization());
+	System.out.println("throughput:        " + theory.getThroughput());
+	System.out.println("mean sojourn:      " + theory.getMeanSojourn());
+	System.out.println("mean wait:         " + theory.getMeanWait());
+    }
+
+    /* Print the expected behaviour of a queue that is empty at time 0
+       over the specified length of time, computed by uniformization,
+       unless that would take too long. The solution is advanced in
+       small increments so that, once it has converged to the steady
+       state, the rest of the time costs almost nothing. The solver may
+       lose its epsilon in every increment, so it is given a share of
+       the total error. */
+    protected void printTransient(double t) {
+	TransientSolver solver = new TransientSolver(settings.getServers(),
+						     settings.getLambda(),
+						     settings.getMu(), 
+						     epsilon / 
+						     TRANSIENT_STEPS);
+	long start = System.nanoTime();
+	double cost = 0, dt;
+
+	while (solver.getTime() < t) {
+	    dt = Math.min(t / TRANSIENT_STEPS, t - solver.getTime());
+	    if (!(dt > 0)) {
+		return;
+	    }
+	    cost += solver.getCost(dt);
+	    if (!(cost <= MAX_TRANSIENT_COST)) {
+		System.out.println("The transient solution is too costly " +
+				   "to compute.");
+		return;
+	    }
+	    solver.advance(dt);
+	}
+	System.out.println("transient over the simulated time (analytic):");
+	System.out.println("mean queue state:  " + 
+			   solver.getMeanTimeAverage());
+	System.out.println("final mean state:  " + solver.getMeanState());
+	System.out.println("solver time:       " + 
+			   (System.nanoTime() - start) / 1e9 + " s");
+    }
+
+    /* Print the estimates obtained from a set of replications. */
+    protected void print(ReplicationResult result) {
+	System.out.println(result.getReplications() + 
+			   " replications, " + 
+			   Math.round(100 * result.getLevel()) + 
+			   "% confidence intervals:");
+	System.out.println("mean queue state:  " + result.getMeanState());
+	System.out.println("mean waiting:      " + result.getMeanWaiting());
+	System.out.println("utilization:       " + result.getUtilization());
+	System.out.println("throughput:        " + result.getThroughput());
+	System.out.println("mean sojourn:      " + result.getMeanSojourn());
+	System.out.println("mean wait:         " + result.getMeanWait());
+	if (Double.isNaN(result.getWaitP50().getMean())) {
+	    return;
+	}
+	System.out.println("wait p50:          " + result.getWaitP50());
+	System.out.println("wait p99:          " + result.getWaitP99());
+	System.out.println("wait p999:         " + result.getWaitP999());
+    }
+}
@@ -8,7 +8,7 @@ class MarkovQueue {
 
     protected double tick;      // time interval between simulation iterations 
     protected int servers;      // number of servers
-    protected Vector customers; // list of customers currently in the queue
+    protected CustomerBuffer customers; // customers currently in the queue
  
     protected double lambda;    // customer arrival parameter
     protected double mu;        // service time parameter
@@ -17,16 +17,19 @@ class MarkovQueue {
     protected int lastDepartures = 0; // number of departures in last interval
     protected Vector lastServiceLengths; // last generated service lengths
 
-    /* This internal class represents a customer who passes through the 
-       queue to receive service from a server. */
-    class Customer extends Object {
-	protected double serviceTime, untilDone, arrivalTime;
-	
-	Customer(double s, double a) {
-	    serviceTime = untilDone = s;
-	    arrivalTime = a;
-	}
-    }
+    protected PoissonSampler arrivalSampler;     // arrivals per interval
+    protected ExponentialSampler serviceSampler; // service lengths
+    protected RandomSource random; // source of all random values
+
+    protected int inService = 0; // customers whose service has started
+    protected QueueListener[] listeners = new QueueListener[0];
+
+    /* With infinitely many servers, every customer is serviced at once,
+       so rather than decrementing the remaining service time of each
+       customer at every step, the step at which each customer leaves is
+       scheduled on a timing wheel. */
+    protected long step = 0;            // number of steps simulated
+    protected DepartureWheel departures; // departure steps and arrivals
 
     /* Construct a queue and initialize its state and time counters
        with default values. */
@@ -34,76 +37,106 @@ class MarkovQueue {
 	tick = 0.1;
 	servers = 1;
 	lambda = mu = 1;
-	customers = new Vector();
+	random = new XoroshiroRandom();
+	customers = new CustomerBuffer();
+	initSamplers();
     }
 
     /* Construct an M/M/s queue using the specified parameters. */
     MarkovQueue(int s, double t, double l, double m) {
+	this(s, t, l, m, new XoroshiroRandom());
+    }
+
+    /* Construct an M/M/s queue using the specified parameters that
+       draws its random values from the specified source. Queues given
+       equally seeded sources follow identical sample paths. */
+    MarkovQueue(int s, double t, double l, double m, RandomSource r) {
 	servers = s;
 	tick = t;
 	lambda = l;
 	mu = m;
-	customers = new Vector();
+	random = r;
+	customers = new CustomerBuffer();
+	initSamplers();
+    }
+
+    /* Build the random value generators for the queue parameters. This
+       is done once so that the per-sample cost does not include any
+       setup that depends only on the parameters. */
+    protected void initSamplers() {
+	arrivalSampler = new PoissonSampler(lambda*tick, random);
+	serviceSampler = new ExponentialSampler(mu, random);
     }
 
     /* Simulate the passage of one interval of time (as defined by the tick
        variable). */
     
     public void simulateStep() {
-	int i;
-	int a, d = 0;
-	Customer c;
+	int i, k;
+	int a, d;
+
+	if (servers < 1) {
+	    simulateInfiniteStep();
+	    return;
+	}
 
 	/* Advance the queue clock. */
 	time += tick;
+	step++;
 
 	/* Process the customers currently being serviced by decrementing the
 	   lifetimes of s customers at exit end of the queue, where s is the
-	   number of servers. If the servers variable is not a positive 
-	   integer, then an infinite number of servers is assumed to exist
-	   and all of the customers in the queue get processed. */
-	if (servers < 1) {
-	    for (i = 0; i < customers.size(); i++) {
-		c = (Customer) customers.elementAt(i);
-		c.untilDone -= tick;
-		customers.setElementAt(c, i);
-	    }
-	} else {
-	    for (i = 0; i < servers & i < customers.size(); i++) {
-		c = (Customer) customers.elementAt(i);
-		c.untilDone -= tick;
-		customers.setElementAt(c, i);
-	    }
+	   number of servers. (Infinitely many servers are handled by
+	   simulateInfiniteStep().) */
+	k = customers.size();
+	if (servers < k) {
+	    k = servers;
 	}
+	customers.serve(k, tick);
 
 	/* Remove those customers who have been completely serviced 
-	   from the queue. */
-	for (i = 0; i < customers.size(); i++) {
-	    c = (Customer) customers.elementAt(i);
-	    if (c.untilDone <= 0) {
-		customers.remove(i);
-		d++;
+	   from the queue. Only the customers being serviced can have
+	   finished, so the rest of the queue need not be examined. */
+	if (listeners.length > 0) {
+	    for (i = 0; i < k; i++) {
+		if (customers.getRemaining(i) <= 0) {
+		    fireDeparted(customers.getArrival(i));
+		}
 	    }
 	}
+	d = customers.removeCompleted(k);
+	inService -= d;
 
 	/* Determine how many new Poisson distributed arrivals occur during
 	   the interval. This is done after simulating the processing of
 	   customers currently in the queue so that the new customers do
 	   not immediately get processed. */
-	a = genPoisson(lambda, tick);
+	a = arrivalSampler.sample();
 	
 	/* Assign an exponentially distributed service time to each 
 	   arrival. */
 	lastServiceLengths = new Vector(a);
 	for (i = 0; i < a; i++) {
 
-	    /* New arrivals are appended to the end of the customers
-	       vector; departures are removed from the front end. */
-	    double s = genExponential(mu);
-	    c = new Customer(s, time);	
-	    customers.add(c);
+	    /* New arrivals are appended to the end of the customer
+	       buffer; departures are removed from the front end. */
+	    double s = serviceSampler.sample();
+	    customers.add(s, time);
 	    lastServiceLengths.add(new Double(s));
+	    fireArrived(s);
+	}
+
+	/* Customers who have moved up to a free server, including any
+	   new arrivals, begin service at the start of the next
+	   interval. */
+	k = customers.size();
+	if (servers < k) {
+	    k = servers;
+	}
+	for (i = inService; i < k && listeners.length > 0; i++) {
+	    fireServiceStarted(customers.getArrival(i));
 	}
+	inService = k;
 
 	/* Update the queue state. */
 	state = customers.size();
@@ -113,6 +146,56 @@ class MarkovQueue {
 	lastDepartures = d;
     }
 
+    /* Simulate one interval of time with infinitely many servers. Only
+       the customers who leave during the interval are examined, so that
+       a step takes time proportional to the number of arrivals and
+       departures however many customers are being serviced. The wheel
+       covers about eight mean service times, so that few departures
+       have to wait in its overflow heap. A customer whose
+       service time is s leaves ceil(s/tick) steps after arriving (but
+       no sooner than the next step), which is when the remaining
+       service time would have dropped to zero had it been decremented
+       at each step. */
+    protected void simulateInfiniteStep() {
+	int i, a, d;
+
+	if (departures == null) {
+	    departures = new DepartureWheel((int) Math.min(8 / (mu * tick), 
+							   1 << 20), step + 1);
+	}
+
+	/* Advance the queue clock. */
+	time += tick;
+	step++;
+
+	/* Remove the customers whose service has been completed. */
+	d = departures.getCount();
+	for (i = 0; i < d && listeners.length > 0; i++) {
+	    fireDeparted(departures.getArrival(i));
+	}
+	departures.advance();
+
+	/* Schedule the departures of the new arrivals, all of whom begin
+	   service immediately. */
+	a = arrivalSampler.sample();
+	lastServiceLengths = new Vector(a);
+	for (i = 0; i < a; i++) {
+	    double s = serviceSampler.sample();
+
+	    departures.add(step + (long) Math.max(1, Math.ceil(s / tick)), 
+			   time);
+	    lastServiceLengths.add(new Double(s));
+	    fireArrived(s);
+	}
+	for (i = 0; i < a && listeners.length > 0; i++) {
+	    fireServiceStarted(time);
+	}
+
+	state = departures.size();
+	lastArrivals = a;
+	lastDepartures = d;
+    }
+
     /* Return the current queue time. */
     public double getTime() { return time; }
 
@@ -125,29 +208,60 @@ class MarkovQueue {
     /* Return the number of departures who left during the last interval. */
     public int getLastDepartures() { return lastDepartures; }
 
+    /* Register an object to be informed of the progress of each
+       customer through the queue. */
+    public void addListener(QueueListener l) {
+	QueueListener[] a = new QueueListener[listeners.length + 1];
+
+	System.arraycopy(listeners, 0, a, 0, listeners.length);
+	a[listeners.length] = l;
+	listeners = a;
+    }
+
+    /* Inform the listeners that a customer with the specified service
+       length has arrived. */
+    protected void fireArrived(double s) {
+	for (int i = 0; i < listeners.length; i++) {
+	    listeners[i].arrived(time, s);
+	}
+    }
+
+    /* Inform the listeners that the customer who arrived at the
+       specified time has started service. */
+    protected void fireServiceStarted(double a) {
+	for (int i = 0; i < listeners.length; i++) {
+	    listeners[i].serviceStarted(time, a);
+	}
+    }
+
+    /* Inform the listeners that the customer who arrived at the
+       specified time has departed. */
+    protected void fireDeparted(double a) {
+	for (int i = 0; i < listeners.length; i++) {
+	    listeners[i].departed(time, a);
+	}
+    }
+
+    /* Return the source of the queue's random values. */
+    public RandomSource getRandomSource() { return random; }
+
     /* Return the service lengths of the last group of arrivals. */
     public Vector getLastServiceLengths() { return lastServiceLengths; }
 
     /* Generate a value for a Poisson random variable with the
-       specified parameters using the method described in 
-       chapter 10 of Kenneth Ross' "A First Course in Probability." */
+       specified parameters. The sampler for the queue's own arrival
+       parameters is reused; other parameters require a new sampler to
+       be built. */
     public int genPoisson(double l, double t) {
-	double prod = 1;
-	int n = 0;
-
-	while (prod >= Math.exp(-l*t)) {
-	    n++;
-	    prod *= Math.random();
+	if (arrivalSampler.getMean() != l*t) {
+	    return new PoissonSampler(l*t, random).sample();
 	}
-
-	return n - 1;
+	return arrivalSampler.sample();
     }
     
     /* Generate a value for an exponential random variable with the
-       specified parameters. As above, the method used is due to
-       Mr. Ross' aformentioned text. */
+       specified parameters. */
     public double genExponential(double l) {
-	return Math.log(Math.random())/-l;
+	return ExponentialSampler.standard(random)/l;
     }
 }
-	
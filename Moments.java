@@ -0,0 +1,64 @@
+/* This class accumulates the count, mean, variance and extremes of a
+   stream of values in constant memory using Welford's method, which
+   does not suffer from the cancellation that afflicts the textbook sum
+   of squares formula on long runs. Accumulators can be merged. */
+class Moments {
+    protected long count = 0;
+    protected double mean = 0;
+    protected double m2 = 0;    // sum of squared deviations from the mean
+    protected double min = Double.POSITIVE_INFINITY;
+    protected double max = Double.NEGATIVE_INFINITY;
+
+    /* Add a value to the accumulator. */
+    public void add(double x) {
+	double d = x - mean;
+
+	count++;
+	mean += d / count;
+	m2 += d * (x - mean);
+	if (x < min) {
+	    min = x;
+	}
+	if (x > max) {
+	    max = x;
+	}
+    }
+
+    /* Add the values accumulated by another accumulator to this one
+       using the pairwise update of Chan, Golub and LeVeque. */
+    public void merge(Moments m) {
+	long n;
+	double d;
+
+	if (m.count == 0) {
+	    return;
+	}
+	n = count + m.count;
+	d = m.mean - mean;
+	mean += d * m.count / n;
+	m2 += m.m2 + d * d * ((double) count * m.count / n);
+	count = n;
+	min = Math.min(min, m.min);
+	max = Math.max(max, m.max);
+    }
+
+    public long getCount() { return count; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+
+    /* Return the mean, or NaN if no values have been added. */
+    public double getMean() {
+	return count > 0 ? mean : Double.NaN;
+    }
+
+    /* Return the sample variance, or NaN if fewer than two values have
+       been added. */
+    public double getVariance() {
+	return count > 1 ? m2 / (count - 1) : Double.NaN;
+    }
+
+    /* Return the sample standard deviation. */
+    public double getDeviation() {
+	return Math.sqrt(getVariance());
+    }
+}
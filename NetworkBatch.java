@@ -0,0 +1,219 @@
+import java.io.*;
+import java.util.*;
+
+/* This class simulates an open network of M/M/s stations without a
+   user interface and compares the number of customers at each station
+   with the steady state predicted by Jackson's theorem. The network is
+   either read from a file or built as a ring of identical stations. A
+   network file holds one declaration per line; blank lines and text
+   following a '#' are ignored:
+
+     station <servers> <mu> <lambda>   stations are numbered from 0
+     route <from> <to> <probability>
+
+   where lambda is the rate at which customers arrive at the station
+   from outside the network. */
+public class NetworkBatch {
+    protected QueueNetwork network;
+    protected long seed = System.nanoTime();
+    protected long maxEvents = 10000000;
+    protected double maxTime = Double.POSITIVE_INFINITY;
+    protected boolean verbose = false; // print every station
+
+    public static void main(String[] args) {
+	NetworkBatch batch = new NetworkBatch();
+
+	if (!batch.parseArgs(args)) {
+	    usage();
+	    System.exit(1);
+	}
+	batch.run();
+    }
+
+    /* Print a summary of the command line options. */
+    protected static void usage() {
+	System.err.println(
+	    "Usage: java NetworkBatch [options] [network-file]\n" +
+	    "  -c <stations> simulate a ring of single-server stations\n" +
+	    "                instead of reading a network file (1000)\n" +
+	    "  -k <routes>   routes from each station of the ring to the\n" +
+	    "                next ones (4)\n" +
+	    "  -q <exit>     probability of leaving the ring after each\n" +
+	    "                service (0.1)\n" +
+	    "  -u <rho>      utilization of each station of the ring (0.7)\n" +
+	    "  -n <events>   maximum number of events (10000000)\n" +
+	    "  -T <time>     maximum simulated time (unlimited)\n" +
+	    "  -r <seed>     random seed (arbitrary)\n" +
+	    "  -v            print the results of every station");
+    }
+
+    /* Set the parameters from the command line and build the network.
+       Returns false if the arguments are not valid. */
+    protected boolean parseArgs(String[] args) {
+	int c = 1000, k = 4, i;
+	double q = 0.1, u = 0.7;
+	String file = null;
+	RandomSource r;
+
+	try {
+	    for (i = 0; i < args.length; i++) {
+		String a = args[i];
+
+		if (a.equals("-v")) {
+		    verbose = true;
+		} else if (!a.startsWith("-") && i == args.length - 1) {
+		    file = a;
+		} else if (i + 1 >= args.length) {
+		    return false;
+		} else if (a.equals("-c")) {
+		    c = Integer.parseInt(args[++i]);
+		} else if (a.equals("-k")) {
+		    k = Integer.parseInt(args[++i]);
+		} else if (a.equals("-q")) {
+		    q = Double.parseDouble(args[++i]);
+		} else if (a.equals("-u")) {
+		    u = Double.parseDouble(args[++i]);
+		} else if (a.equals("-n")) {
+		    maxEvents = Long.parseLong(args[++i]);
+		} else if (a.equals("-T")) {
+		    maxTime = Double.parseDouble(args[++i]);
+		} else if (a.equals("-r")) {
+		    seed = Long.parseLong(args[++i]);
+		} else {
+		    return false;
+		}
+	    }
+	} catch (NumberFormatException ex) {
+	    return false;
+	}
+
+	r = new XoroshiroRandom(seed);
+	if (file != null) {
+	    try {
+		network = read(file, r);
+	    } catch (IOException ex) {
+		System.err.println("Cannot read " + file + ": " + 
+				   ex.getMessage());
+		return false;
+	    }
+	} else {
+	    if (c < 1 || k < 0 || k >= c || !(q > 0 && q <= 1) || 
+		!(u > 0)) {
+		System.err.println("The ring must have at least one more " +
+				   "station than routes, and the exit " + 
+				   "probability and utilization must be " +
+				   "positive.");
+		return false;
+	    }
+	    network = QueueNetwork.createRing(c, k, q, u, r);
+	}
+	if (!network.isValid()) {
+	    System.err.println("The service rates must be positive, the " +
+			       "arrival rates and probabilities " + 
+			       "nonnegative, and the probabilities out of " +
+			       "each station must not exceed 1.");
+	    return false;
+	}
+	return true;
+    }
+
+    /* Read a network from the specified file. */
+    public static QueueNetwork read(String file, RandomSource r) 
+	throws IOException {
+	BufferedReader in = new BufferedReader(new FileReader(file));
+	QueueNetwork net = new QueueNetwork(r);
+	String line;
+	int n = 0, h;
+
+	try {
+	    while ((line = in.readLine()) != null) {
+		StringTokenizer t;
+
+		n++;
+		if ((h = line.indexOf('#')) >= 0) {
+		    line = line.substring(0, h);
+		}
+		t = new StringTokenizer(line);
+		if (!t.hasMoreTokens()) {
+		    continue;
+		}
+		try {
+		    String w = t.nextToken();
+
+		    if (w.equals("station") && t.countTokens() == 3) {
+			net.addStation(Integer.parseInt(t.nextToken()),
+				       Double.parseDouble(t.nextToken()),
+				       Double.parseDouble(t.nextToken()));
+		    } else if (w.equals("route") && t.countTokens() == 3) {
+			net.addRoute(Integer.parseInt(t.nextToken()),
+				     Integer.parseInt(t.nextToken()),
+				     Double.parseDouble(t.nextToken()));
+		    } else {
+			throw new IOException("line " + n + 
+					      ": invalid declaration");
+		    }
+		} catch (NumberFormatException ex) {
+		    throw new IOException("line " + n + ": invalid number");
+		} catch (IllegalArgumentException ex) {
+		    throw new IOException("line " + n + 
+					  ": undeclared station");
+		}
+	    }
+	} finally {
+	    in.close();
+	}
+	return net;
+    }
+
+    /* Run the simulation and print the results. */
+    public void run() {
+	long start = System.nanoTime();
+	QueueTheory[] theory;
+	double elapsed, total = 0, expected = 0;
+	int i, n = network.getStationCount();
+	boolean stable = true;
+
+	network.simulate(maxEvents, maxTime);
+	elapsed = (System.nanoTime() - start) / 1e9;
+	theory = network.getTheory();
+
+	System.out.println("stations:          " + n + ", seed = " + seed);
+	System.out.println("events:            " + network.getEventCount());
+	System.out.println("simulated time:    " + network.getTime());
+	System.out.println("customers left:    " + network.getExits());
+	System.out.println("customers present: " + network.getPopulation());
+	for (i = 0; i < n; i++) {
+	    total += network.getMeanState(i);
+	    if (theory != null) {
+		stable &= theory[i].isStable();
+		expected += theory[i].getMeanState();
+	    }
+	}
+	System.out.println("mean customers:    " + total);
+	if (theory == null || !stable) {
+	    System.out.println("The network has no steady state.");
+	} else {
+	    System.out.println("steady state (analytic):");
+	    System.out.println("mean customers:    " + expected);
+	}
+	System.out.println("cpu time:          " + elapsed + " s (" +
+			   (long) (network.getEventCount() / elapsed) + 
+			   " events/s)");
+
+	if (verbose) {
+	    System.out.println("station,arrivals,departures,max_state," +
+			       "mean_state,throughput,analytic_mean_state," +
+			       "analytic_throughput");
+	    for (i = 0; i < n; i++) {
+		System.out.println(i + "," + network.getArrivals(i) + "," +
+				   network.getDepartures(i) + "," +
+				   network.getMaxState(i) + "," +
+				   network.getMeanState(i) + "," +
+				   network.getThroughput(i) + "," +
+				   (theory != null && theory[i].isStable() ?
+				    theory[i].getMeanState() + "," + 
+				    theory[i].getThroughput() : ","));
+	    }
+	}
+    }
+}
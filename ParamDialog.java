@@ -12,6 +12,7 @@ public class ParamDialog extends JDialog {
     protected double tickValue;
     protected double lambdaValue;
     protected double muValue;
+    protected boolean eventValue;
 
     /* Various parameter entry fields. */
     protected JRadioButton yesInfServerButton, noInfServerButton;
@@ -19,14 +20,17 @@ public class ParamDialog extends JDialog {
     protected RealOnlyTextField tickField;
     protected RealOnlyTextField lambdaField;
     protected RealOnlyTextField muField;
+    protected JCheckBox eventBox;
 
     /* These methods just retrieve the various field values. */
     public int getServerValue() { return serverValue; }
     public double getTickValue() { return tickValue; }
     public double getLambdaValue() { return lambdaValue; }
     public double getMuValue() { return muValue; }
+    public boolean getEventValue() { return eventValue; }
     
-    public ParamDialog(Frame owner, int s, double t, double l, double m) {
+    public ParamDialog(Frame owner, int s, double t, double l, double m,
+		       boolean e) {
 	
 	/* Call parent constructor. */
 	super(owner, "Enter Simulation Parameters", true);
@@ -39,14 +43,16 @@ public class ParamDialog extends JDialog {
 	tickValue = t;
 	lambdaValue = l;
 	muValue = m;
+	eventValue = e;
 
 	/* Set up the field entry panel. */
-	JPanel entryPanel = new JPanel(new GridLayout(5, 2));
+	JPanel entryPanel = new JPanel(new GridLayout(6, 2));
        
 	serverField = new IntOnlyTextField(String.valueOf(serverValue), 4);
 	tickField = new RealOnlyTextField(String.valueOf(tickValue), 4);
 	lambdaField = new RealOnlyTextField(String.valueOf(lambdaValue), 4);
 	muField = new RealOnlyTextField(String.valueOf(muValue), 4);
+	eventBox = new JCheckBox("Next-event", eventValue);
 
 	yesInfServerButton = new JRadioButton("M/M/Infinity");
 	noInfServerButton = new JRadioButton("M/M/s");
@@ -66,6 +72,8 @@ public class ParamDialog extends JDialog {
 	entryPanel.add(lambdaField);
 	entryPanel.add(new JLabel("Service rate:")); 
 	entryPanel.add(muField);
+	entryPanel.add(new JLabel("Simulation engine:")); 
+	entryPanel.add(eventBox);
 
 	/* Toggle the radio buttons and server number specification field
 	   depending on the server value. */
@@ -135,6 +143,7 @@ public class ParamDialog extends JDialog {
 			tickValue = tickField.getValue();
 			lambdaValue = lambdaField.getValue();
 			muValue = muField.getValue();
+			eventValue = eventBox.isSelected();
 		    
 			/* Hide the dialog box object after valid 
 			   parameter values have been obtained so that the 
@@ -152,6 +161,7 @@ public class ParamDialog extends JDialog {
 		    tickField.setText("0.1");
 		    lambdaField.setText("1.0");
 		    muField.setText("1.0");		   
+		    eventBox.setSelected(false);
 		}
 	    }
 				      );
@@ -0,0 +1,314 @@
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+/* This class simulates every combination of a grid of queue parameters
+   (servers, tick, lambda and mu) in parallel. Each cell of the grid is
+   a separate fork-join task, so workers that finish cheap, lightly
+   loaded cells steal the remaining ones rather than waiting behind the
+   long, heavily loaded ones. A row of results is written as soon as
+   each cell finishes; rows therefore appear in completion order, and
+   each row carries its grid index. Optionally, cells whose queue has a
+   steady state can be filled in from the analytic solution instead of
+   being simulated. */
+public class ParameterSweep {
+    protected int[] servers;
+    protected double[] ticks, lambdas, mus;
+    protected SimulationSettings base; // engine and run limits
+    protected RandomSource random;
+    protected ForkJoinPool pool;
+    protected PrintStream out;
+    protected boolean analytic = false; // solve stable cells analytically
+
+    /* Construct a sweep over the specified parameter values. The engine
+       and run limits are taken from the base settings. */
+    ParameterSweep(int[] s, double[] t, double[] l, double[] m,
+		   SimulationSettings b, RandomSource r, ForkJoinPool p,
+		   PrintStream o) {
+	servers = s;
+	ticks = t;
+	lambdas = l;
+	mus = m;
+	base = b;
+	random = r;
+	pool = p;
+	out = o;
+    }
+
+    /* Use the analytic steady-state solution rather than simulation for
+       cells whose queue is stable if the flag is true. */
+    public void setAnalytic(boolean a) { analytic = a; }
+
+    /* Return the number of cells in the grid. */
+    public int getCellCount() {
+	return servers.length * ticks.length * lambdas.length * mus.length;
+    }
+
+    /* Return true if the settings of every cell of the grid pass the
+       same checks as the settings dialog. */
+    public boolean isValid() {
+	int i, n = getCellCount();
+
+	for (i = 0; i < n; i++) {
+	    if (!getCell(i).isValid()) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /* Return the settings for the specified cell of the grid. */
+    public SimulationSettings getCell(int i) {
+	int m = i % mus.length;
+	int l = (i /= mus.length) % lambdas.length;
+	int t = (i /= lambdas.length) % ticks.length;
+	int s = (i /= ticks.length);
+	SimulationSettings c = new SimulationSettings(servers[s], ticks[t],
+						      lambdas[l], mus[m],
+						      base.getEvent());
+	c.setLimits(base.getMaxSteps(), base.getMaxTime());
+	c.setAggregate(base.getAggregate());
+	return c;
+    }
+
+    /* Simulate every cell of the grid, writing a row of results as each
+       one finishes, and return the statistics of all cells in grid 
+       order. The entries of cells that were solved analytically are
+       null. */
+    public RunStatistics[] run() {
+	int n = getCellCount(), i;
+	RandomSource[] streams = new RandomSource[n];
+	RunStatistics[] results = new RunStatistics[n];
+	List tasks = new ArrayList(n);
+
+	/* Split the streams up front so that each cell's results depend
+	   only on the seed and the cell's position in the grid. */
+	for (i = 0; i < n; i++) {
+	    streams[i] = random.split();
+	}
+
+	printHeader();
+	for (i = 0; i < n; i++) {
+	    tasks.add(new CellTask(i, streams[i], results));
+	}
+	pool.invoke(new SweepTask(tasks));
+	return results;
+    }
+
+    /* Write the column names of the results table. */
+    protected void printHeader() {
+	out.println("cell,servers,tick,lambda,mu,source,utilization," +
+		    "mean_state,mean_waiting,mean_wait,mean_sojourn," +
+		    "throughput");
+    }
+
+    /* Write the row of results for the specified cell. Rows are written
+       whole so that those of concurrently finishing cells do not get
+       interleaved. */
+    protected void printRow(int i, SimulationSettings c, RunStatistics r) {
+	String row = i + "," + c.getServers() + "," + c.getTick() + "," +
+	    c.getLambda() + "," + c.getMu() + ",simulation," + 
+	    r.getUtilization() + "," + r.getMeanState() + "," + 
+	    r.getMeanWaiting() + "," + r.getMeanWait() + "," + 
+	    r.getMeanSojourn() + "," + r.getThroughput();
+
+	synchronized (out) {
+	    out.println(row);
+	}
+    }
+
+    /* Write the row of analytic results for the specified cell. */
+    protected void printRow(int i, SimulationSettings c, QueueTheory q) {
+	String row = i + "," + c.getServers() + "," + c.getTick() + "," +
+	    c.getLambda() + "," + c.getMu() + ",analytic," + 
+	    q.getUtilization() + "," + q.getMeanState() + "," + 
+	    q.getMeanWaiting() + "," + q.getMeanWait() + "," + 
+	    q.getMeanSojourn() + "," + q.getThroughput();
+
+	synchronized (out) {
+	    out.println(row);
+	}
+    }
+
+    /* This task forks a task for each cell and waits for all of them. */
+    class SweepTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	List tasks;
+
+	SweepTask(List t) {
+	    tasks = t;
+	}
+
+	protected void compute() {
+	    invokeAll(tasks);
+	}
+    }
+
+    /* This task simulates a single cell of the grid. */
+    class CellTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	int index;
+	RandomSource stream;
+	RunStatistics[] results;
+
+	CellTask(int i, RandomSource r, RunStatistics[] res) {
+	    index = i;
+	    stream = r;
+	    results = res;
+	}
+
+	protected void compute() {
+	    SimulationSettings c = getCell(index);
+
+	    if (analytic) {
+		QueueTheory q = new QueueTheory(c.getServers(), 
+						c.getLambda(), c.getMu());
+		if (q.isStable()) {
+		    printRow(index, c, q);
+		    return;
+		}
+	    }
+	    results[index] = c.run(stream);
+	    printRow(index, c, results[index]);
+	}
+    }
+
+    public static void main(String[] args) {
+	int[] s = { 1 };
+	double[] t = { 0.1 }, l = { 1 }, m = { 1 };
+	boolean e = false, g = false, analytic = false;
+	long n = 1000000, seed = System.nanoTime();
+	double T = Double.POSITIVE_INFINITY;
+	int threads = Runtime.getRuntime().availableProcessors(), i;
+
+	try {
+	    for (i = 0; i < args.length; i++) {
+		String a = args[i];
+
+		if (a.equals("-e")) {
+		    e = true;
+		} else if (a.equals("-g")) {
+		    g = true;
+		} else if (a.equals("-a")) {
+		    analytic = true;
+		} else if (i + 1 >= args.length) {
+		    usage();
+		    return;
+		} else if (a.equals("-s")) {
+		    double[] v = parseRange(args[++i]);
+		    s = new int[v.length];
+		    for (int j = 0; j < v.length; j++) {
+			if (v[j] != Math.rint(v[j]) || 
+			    Math.abs(v[j]) > Integer.MAX_VALUE) {
+			    throw new NumberFormatException(
+				"Noninteger number of servers");
+			}
+			s[j] = (int) v[j];
+		    }
+		} else if (a.equals("-t")) {
+		    t = parseRange(args[++i]);
+		} else if (a.equals("-l")) {
+		    l = parseRange(args[++i]);
+		} else if (a.equals("-m")) {
+		    m = parseRange(args[++i]);
+		} else if (a.equals("-n")) {
+		    n = Long.parseLong(args[++i]);
+		} else if (a.equals("-T")) {
+		    T = Double.parseDouble(args[++i]);
+		} else if (a.equals("-r")) {
+		    seed = Long.parseLong(args[++i]);
+		} else if (a.equals("-p")) {
+		    threads = Integer.parseInt(args[++i]);
+		} else {
+		    usage();
+		    return;
+		}
+	    }
+	} catch (NumberFormatException ex) {
+	    usage();
+	    return;
+	}
+
+	SimulationSettings b = new SimulationSettings(1, 0.1, 1, 1, e);
+	b.setLimits(n, T);
+	b.setAggregate(g);
+	if (threads < 1) {
+	    usage();
+	    return;
+	}
+	ForkJoinPool pool = new ForkJoinPool(threads);
+	ParameterSweep sweep = new ParameterSweep(s, t, l, m, b, 
+						  new XoroshiroRandom(seed), 
+						  pool, System.out);
+	if (!sweep.isValid()) {
+	    System.err.println("The numbers of servers must be nonzero, " +
+			       "and the rates and time increments " +
+			       "positive, in every cell.");
+	    pool.shutdown();
+	    System.exit(1);
+	}
+	sweep.setAnalytic(analytic);
+	sweep.run();
+	pool.shutdown();
+    }
+
+    /* Print a summary of the command line options. */
+    protected static void usage() {
+	System.err.println(
+	    "Usage: java ParameterSweep [options]\n" +
+	    "Each parameter takes a list of values separated by commas,\n" +
+	    "a range first:last:step, or a mixture of both.\n" +
+	    "  -s <servers>  numbers of servers; negative means infinity (e.g. -1) (1)\n" +
+	    "  -t <tick>     time increments (0.1)\n" +
+	    "  -l <lambda>   arrival rates (1.0)\n" +
+	    "  -m <mu>       service rates (1.0)\n" +
+	    "  -e            use the next-event engine\n" +
+	    "  -g            track only the number of customers\n" +
+	    "  -a            use the analytic solution for stable cells\n" +
+	    "  -n <steps>    maximum number of steps per cell (1000000)\n" +
+	    "  -T <time>     maximum simulated time per cell (unlimited)\n" +
+	    "  -r <seed>     random seed (arbitrary)\n" +
+	    "  -p <threads>  number of worker threads (all processors)");
+    }
+
+    /* Parse a list of values and ranges such as "1,2,5:10:0.5". */
+    protected static double[] parseRange(String str) {
+	StringTokenizer st = new StringTokenizer(str, ",");
+	Vector v = new Vector();
+	double[] d;
+	int i;
+
+	while (st.hasMoreTokens()) {
+	    String[] r = st.nextToken().split(":");
+
+	    if (r.length == 1) {
+		v.add(new Double(r[0]));
+	    } else if (r.length == 3) {
+		double first = Double.parseDouble(r[0]);
+		double last = Double.parseDouble(r[1]);
+		double step = Double.parseDouble(r[2]);
+
+		if (step <= 0) {
+		    throw new NumberFormatException("Nonpositive step");
+		}
+
+		/* Compute each value from its index rather than by
+		   repeated addition to avoid accumulating rounding
+		   error. */
+		for (i = 0; first + i*step <= last + 1e-9*step; i++) {
+		    v.add(new Double(first + i*step));
+		}
+	    } else {
+		throw new NumberFormatException("Malformed range " + str);
+	    }
+	}
+
+	d = new double[v.size()];
+	for (i = 0; i < d.length; i++) {
+	    d[i] = ((Double) v.get(i)).doubleValue();
+	}
+	return d;
+    }
+}
@@ -0,0 +1,159 @@
+/* This class generates Poisson distributed random values with a fixed
+   mean. All of the work that depends only on the mean is done once when
+   the sampler is constructed. For small means, the cumulative
+   distribution is tabulated together with a guide table that jumps
+   straight to the neighbourhood of the answer, so that inversion takes
+   a constant expected number of comparisons. For large means, the
+   transformed rejection method with squeeze (PTRS) of Hormann ("The
+   Transformed Rejection Method for Generating Poisson Random
+   Variables," 1993) is used; it needs about 1.2 pairs of uniform values
+   per sample regardless of the mean. */
+class PoissonSampler {
+    protected static final double TABLE_LIMIT = 10; // largest tabulated mean
+    protected static final int LOG_FACTORIALS = 256;
+    protected static final double[] logFactorials =
+	new double[LOG_FACTORIALS];
+
+    /* Tabulate log(k!) for small values of k. */
+    static {
+	int k;
+
+	logFactorials[0] = 0;
+	for (k = 1; k < LOG_FACTORIALS; k++) {
+	    logFactorials[k] = logFactorials[k - 1] + Math.log(k);
+	}
+    }
+
+    protected double mean;
+    protected RandomSource random; // source of uniform random values
+
+    /* Inversion tables used for small means. */
+    protected double[] cdf;  // cumulative probabilities
+    protected int[] guide;   // guide[j] = first k with cdf[k] > j/guide.length
+    protected double lastP;  // probability of the last tabulated value
+
+    /* Constants used by the PTRS method for large means. */
+    protected double logMean, a, b, invAlpha, vr;
+
+    /* Construct a sampler for the specified mean that draws from the
+       specified random source. */
+    PoissonSampler(double m, RandomSource r) {
+	mean = m;
+	random = r;
+	if (mean < TABLE_LIMIT) {
+	    buildTable();
+	} else {
+	    double s = Math.sqrt(mean);
+
+	    logMean = Math.log(mean);
+	    b = 0.931 + 2.53 * s;
+	    a = -0.059 + 0.02483 * b;
+	    invAlpha = 1.1239 + 1.1328 / (b - 3.4);
+	    vr = 0.9277 - 3.6224 / (b - 2);
+	}
+    }
+
+    /* Return the mean of the sampler. */
+    public double getMean() { return mean; }
+
+    /* Tabulate the cumulative distribution until the remaining
+       probability mass is negligible, and build the guide table. */
+    private void buildTable() {
+	int n, j, k;
+	double p, sum;
+	double[] c = new double[64];
+
+	p = Math.exp(-mean);
+	sum = p;
+	c[0] = sum;
+	for (n = 1; 1 - sum > 1e-16 && n < c.length; n++) {
+	    p *= mean / n;
+	    sum += p;
+	    c[n] = sum;
+	}
+	lastP = p;
+	cdf = new double[n];
+	System.arraycopy(c, 0, cdf, 0, n);
+
+	guide = new int[n];
+	for (j = 0, k = 0; j < n; j++) {
+	    while (k < n - 1 && cdf[k] <= (double) j / n) {
+		k++;
+	    }
+	    guide[j] = k;
+	}
+    }
+
+    /* Generate a Poisson random value with the sampler's mean. */
+    public int sample() {
+	if (mean <= 0) {
+	    return 0;
+	} else if (cdf != null) {
+	    return sampleTable();
+	} else {
+	    return samplePTRS();
+	}
+    }
+
+    /* Invert the tabulated distribution function, starting the search
+       at the entry indicated by the guide table. */
+    private int sampleTable() {
+	double u = random.nextDouble();
+	int k = guide[(int) (u * guide.length)];
+
+	while (k < cdf.length - 1 && u >= cdf[k]) {
+	    k++;
+	}
+	if (u < cdf[k]) {
+	    return k;
+	}
+
+	/* The value lies beyond the end of the table; continue the
+	   search using the recurrence for the probabilities. */
+	double sum = cdf[k];
+	double p = lastP;
+	while (u >= sum && p > 0) {
+	    k++;
+	    p *= mean / k;
+	    sum += p;
+	}
+	return k;
+    }
+
+    /* Generate a value using the PTRS method. */
+    private int samplePTRS() {
+	double u, v, us;
+	int k;
+
+	while (true) {
+	    u = random.nextDouble() - 0.5;
+	    v = random.nextDouble();
+	    us = 0.5 - Math.abs(u);
+	    k = (int) Math.floor((2 * a / us + b) * u + mean + 0.43);
+
+	    /* Accept immediately inside the squeeze region. */
+	    if (us >= 0.07 && v <= vr) {
+		return k;
+	    }
+	    if (k < 0 || (us < 0.013 && v > us)) {
+		continue;
+	    }
+	    if (Math.log(v * invAlpha / (a / (us * us) + b))
+		<= -mean + k * logMean - logFactorial(k)) {
+		return k;
+	    }
+	}
+    }
+
+    /* Return log(k!), using a table for small k and Stirling's series
+       otherwise. */
+    public static double logFactorial(int k) {
+	if (k < LOG_FACTORIALS) {
+	    return logFactorials[k];
+	}
+
+	double n = k, n2 = n * n;
+	return n * Math.log(n) - n + 0.5 * Math.log(2 * Math.PI * n)
+	    + (1 - (1 - 2 / (7 * n2)) / (30 * n2)) / (12 * n);
+    }
+}
@@ -0,0 +1,111 @@
+/* This class estimates quantiles of a stream of nonnegative values in
+   constant memory. Values are counted in logarithmically spaced buckets
+   whose boundaries grow by a factor gamma = (1 + a)/(1 - a), so that
+   every quantile is reported with a relative error of at most a, in the
+   manner of the DDSketch of Masson, Rim and Lee (2019). Unlike the
+   P-squared algorithm, sketches with the same parameters can be merged
+   exactly, which allows the quantiles of independent replications to be
+   pooled. Values at or below the smallest tracked value are counted as
+   zero, and values above the largest tracked value are counted in the
+   last bucket. */
+class QuantileSketch {
+    protected double accuracy;  // relative accuracy a of the quantiles
+    protected double minValue;  // smallest tracked positive value
+    protected double maxValue;  // largest tracked value
+    protected double gamma, logGamma;
+    protected int offset;       // bucket index of counts[0]
+
+    protected long[] counts;    // number of values in each bucket
+    protected long zeroCount = 0;
+    protected long count = 0;
+    protected double min = Double.POSITIVE_INFINITY;
+    protected double max = Double.NEGATIVE_INFINITY;
+
+    /* Construct a sketch with 1% accuracy for values from 1e-9 to 1e12,
+       which needs about 2400 buckets. */
+    QuantileSketch() {
+	this(0.01, 1e-9, 1e12);
+    }
+
+    /* Construct a sketch with the specified relative accuracy for values
+       in the specified range. */
+    QuantileSketch(double a, double lo, double hi) {
+	accuracy = a;
+	minValue = lo;
+	maxValue = hi;
+	gamma = (1 + a) / (1 - a);
+	logGamma = Math.log(gamma);
+	offset = index(lo);
+	counts = new long[index(hi) - offset + 1];
+    }
+
+    /* Return the index of the bucket containing the specified value. */
+    protected int index(double x) {
+	return (int) Math.ceil(Math.log(x) / logGamma);
+    }
+
+    /* Add a value to the sketch. */
+    public void add(double x) {
+	count++;
+	if (x < min) {
+	    min = x;
+	}
+	if (x > max) {
+	    max = x;
+	}
+
+	if (x <= minValue) {
+	    zeroCount++;
+	} else if (x >= maxValue) {
+	    counts[counts.length - 1]++;
+	} else {
+	    counts[index(x) - offset]++;
+	}
+    }
+
+    /* Add the values counted by another sketch with the same parameters
+       to this one. */
+    public void merge(QuantileSketch s) {
+	int i;
+
+	if (s.counts.length != counts.length || s.gamma != gamma 
+	    || s.offset != offset) {
+	    throw new IllegalArgumentException("Incompatible sketches");
+	}
+	for (i = 0; i < counts.length; i++) {
+	    counts[i] += s.counts[i];
+	}
+	zeroCount += s.zeroCount;
+	count += s.count;
+	min = Math.min(min, s.min);
+	max = Math.max(max, s.max);
+    }
+
+    public long getCount() { return count; }
+
+    /* Return an estimate of the q-quantile (0 <= q <= 1) of the values
+       added so far, or NaN if there are none. */
+    public double getQuantile(double q) {
+	double rank = q * (count - 1);
+	long seen = zeroCount;
+	int i;
+
+	if (count == 0) {
+	    return Double.NaN;
+	}
+	if (rank < seen) {
+	    return Math.max(min, 0);
+	}
+	for (i = 0; i < counts.length; i++) {
+	    seen += counts[i];
+	    if (rank < seen) {
+		break;
+	    }
+	}
+
+	/* Report the value whose relative distance to both bucket
+	   boundaries is the same, clamped to the observed range. */
+	double v = 2 * Math.pow(gamma, i + offset) / (gamma + 1);
+	return Math.max(min, Math.min(max, v));
+    }
+}
@@ -0,0 +1,267 @@
+/* This class simulates many independent M/M/s queues in lockstep. Like
+   BirthDeathQueue, each queue is reduced to the number of customers in
+   it, which jumps at exact, exponentially distributed times; but
+   rather than being an object of its own, each queue is a lane in a
+   set of parallel primitive arrays that hold the parameters, states,
+   event times and counters of all of the queues. Each step advances
+   every queue by one tick: the statistics of all lanes are sampled in a
+   single loop over the arrays that the JIT compiler can vectorize, and
+   the jumps that fall within the tick are then made lane by lane. As in
+   RunStatistics, the state observed after a step is taken to hold until
+   the next step. The queues may have identical or different
+   parameters; they draw from a single random source. */
+class QueueBatch {
+    protected static final int BLOCK = 256; // queues simulated together
+
+    protected int size;             // number of queues
+    protected double tick;          // time increment of each step
+    protected RandomSource random;  // source of random values
+    protected double time = 0;      // common clock of the queues
+    protected long steps = 0;       // number of steps taken
+
+    /* Parameters of each queue. */
+    protected double[] servers;     // infinite if there is no limit
+    protected double[] lambda;      // customer arrival parameter
+    protected double[] mu;          // service time parameter
+
+    /* State of each queue. The numbers of customers are held in double
+       arrays, as are the sums below, so that all of the arrays read by
+       record() have the same element type; they remain exact integers
+       up to 2^53. */
+    protected double[] state;       // number of customers
+    protected double[] next;        // time at which the next jump occurs
+    protected int[] jump;           // direction of the next jump (+1 or -1)
+    protected int[] pending;        // queues that jump in this step
+
+    /* Random values drawn a block at a time for the jumps. */
+    protected long[] bits = new long[BLOCK];
+    protected double[] exponential = new double[BLOCK];
+    protected double[] uniform = new double[BLOCK];
+    protected int drawn = BLOCK;    // values already used
+
+    /* Statistics of each queue, summed over the steps. */
+    protected long[] arrivals, departures;
+    protected double[] stateSum;    // sum of the states
+    protected double[] squareSum;   // sum of the squared states
+    protected double[] busySum;     // sum of the busy servers
+    protected double[] maxState;
+
+    /* Construct a batch of queues with the specified numbers of servers
+       (< 1 meaning infinitely many, as in MarkovQueue) and arrival and
+       service parameters, all of which are empty at time 0. */
+    QueueBatch(int[] s, double t, double[] l, double[] m, RandomSource r) {
+	int i;
+
+	size = s.length;
+	tick = t;
+	random = r;
+	servers = new double[size];
+	lambda = new double[size];
+	mu = new double[size];
+	state = new double[size];
+	next = new double[size];
+	jump = new int[size];
+	pending = new int[Math.min(size, BLOCK)];
+	arrivals = new long[size];
+	departures = new long[size];
+	stateSum = new double[size];
+	squareSum = new double[size];
+	busySum = new double[size];
+	maxState = new double[size];
+	for (i = 0; i < size; i++) {
+	    servers[i] = s[i] < 1 ? Double.POSITIVE_INFINITY : s[i];
+	    lambda[i] = l[i];
+	    mu[i] = m[i];
+	    schedule(i);
+	}
+    }
+
+    /* Construct a batch of the specified number of identical queues
+       with the specified parameters. */
+    QueueBatch(int k, SimulationSettings s, RandomSource r) {
+	this(fill(new int[k], s.getServers()), s.getTick(), 
+	     fill(new double[k], s.getLambda()), 
+	     fill(new double[k], s.getMu()), r);
+    }
+
+    public int getSize() { return size; }
+    public double getTick() { return tick; }
+    public double getTime() { return time; }
+    public long getSteps() { return steps; }
+
+    public int getServers(int i) { 
+	return servers[i] == Double.POSITIVE_INFINITY ? 0 : (int) servers[i];
+    }
+    public double getLambda(int i) { return lambda[i]; }
+    public double getMu(int i) { return mu[i]; }
+    public int getState(int i) { return (int) state[i]; }
+    public int getMaxState(int i) { return (int) maxState[i]; }
+    public long getArrivals(int i) { return arrivals[i]; }
+    public long getDepartures(int i) { return departures[i]; }
+
+    /* Return the time-averaged number of customers in a queue. */
+    public double getMeanState(int i) {
+	return steps > 0 ? stateSum[i] / steps : 0;
+    }
+
+    /* Return the time-averaged variance of the number of customers in
+       a queue. */
+    public double getStateVariance(int i) {
+	double m = getMeanState(i);
+
+	return steps > 0 ? squareSum[i] / steps - m * m : 0;
+    }
+
+    /* Return the time-averaged number of customers waiting for service
+       in a queue. */
+    public double getMeanWaiting(int i) {
+	return steps > 0 ? (stateSum[i] - busySum[i]) / steps : 0;
+    }
+
+    /* Return the fraction of time each server of a queue is busy. If
+       there are infinitely many servers, this is undefined and NaN is
+       returned. */
+    public double getUtilization(int i) {
+	if (servers[i] == Double.POSITIVE_INFINITY) {
+	    return Double.NaN;
+	}
+	return steps > 0 ? busySum[i] / steps / servers[i] : 0;
+    }
+
+    /* Return the number of departures per unit time from a queue. */
+    public double getThroughput(int i) {
+	return time > 0 ? departures[i] / time : 0;
+    }
+
+    /* Return an estimate of the specified statistic (one of the
+       constants defined by ReplicationResult) over the queues, which
+       are treated as independent replications. */
+    public Estimate estimate(int statistic, double level) {
+	double[] x = new double[size];
+	int i;
+
+	for (i = 0; i < size; i++) {
+	    switch (statistic) {
+	    case ReplicationResult.MEAN_STATE:   
+		x[i] = getMeanState(i); 
+		break;
+	    case ReplicationResult.MEAN_WAITING: 
+		x[i] = getMeanWaiting(i); 
+		break;
+	    case ReplicationResult.UTILIZATION:  
+		x[i] = getUtilization(i); 
+		break;
+	    case ReplicationResult.THROUGHPUT:   
+		x[i] = getThroughput(i); 
+		break;
+	    default:
+		throw new IllegalArgumentException("Statistic " + statistic +
+						   " is not available");
+	    }
+	}
+	return new Estimate(x, level);
+    }
+
+    /* Advance every queue by the specified number of steps. The queues
+       are independent, so rather than sweeping over all of them at each
+       step, the steps are taken for one block of queues at a time, so
+       that the part of each array that holds the block stays in the
+       first-level cache. */
+    public void run(long n) {
+	int from, to;
+	long j;
+
+	for (from = 0; from < size; from += BLOCK) {
+	    to = Math.min(size, from + BLOCK);
+	    for (j = 1; j <= n; j++) {
+		record(from, to);
+		advance(from, to, (steps + j) * tick);
+	    }
+	}
+	steps += n;
+	time = steps * tick;
+    }
+
+    /* Advance every queue by one tick. */
+    public void step() {
+	run(1);
+    }
+
+    /* Add the current states to the statistics of the specified range
+       of queues. This loop is free of branches and method calls, so
+       that it can be vectorized. */
+    protected void record(int from, int to) {
+	double n;
+	int i;
+
+	for (i = from; i < to; i++) {
+	    n = state[i];
+	    stateSum[i] += n;
+	    squareSum[i] += n * n;
+	    busySum[i] += Math.min(n, servers[i]);
+	    maxState[i] = Math.max(maxState[i], n);
+	}
+    }
+
+    /* Make every jump of the specified range of queues that occurs up
+       to the specified time. Most queues make no more than one jump per
+       tick. The queues that jump are first gathered into a list, and
+       the list is then processed one jump per queue at a time, keeping
+       only the queues that jump again, until it is empty. Neither loop
+       branches on the outcome of a comparison, which for most queues
+       would be unpredictable; the list is built by always storing the
+       index and advancing the end of the list by 0 or 1. The counters
+       are likewise updated without branching on the direction of the
+       jump. */
+    protected void advance(int from, int to, double end) {
+	int i, j, k, n, d;
+
+	for (i = from, n = 0; i < to; i++) {
+	    pending[n] = i;
+	    n += next[i] <= end ? 1 : 0;
+	}
+	while (n > 0) {
+	    for (j = 0; j < n; j++) {
+		i = pending[j];
+		d = jump[i];
+		state[i] += d;
+		arrivals[i] += (1 + d) >> 1;
+		departures[i] += (1 - d) >> 1;
+		schedule(i);
+	    }
+	    for (j = 0, k = 0; j < n; j++) {
+		i = pending[j];
+		pending[k] = i;
+		k += next[i] <= end ? 1 : 0;
+	    }
+	    n = k;
+	}
+    }
+
+    /* Draw the time and direction of the next jump of a queue from its
+       current state, as in BirthDeathQueue.schedule(), but taking both
+       from the buffers of random values, which are refilled a block at
+       a time. */
+    protected void schedule(int i) {
+	double rate = lambda[i] + Math.min(state[i], servers[i]) * mu[i];
+
+	if (drawn == BLOCK) {
+	    ExponentialSampler.fill(random, bits, exponential, uniform, 
+				    BLOCK);
+	    drawn = 0;
+	}
+	next[i] += exponential[drawn] / rate;
+	jump[i] = uniform[drawn] * rate < lambda[i] ? 1 : -1;
+	drawn++;
+    }
+
+    private static int[] fill(int[] a, int x) {
+	java.util.Arrays.fill(a, x);
+	return a;
+    }
+
+    private static double[] fill(double[] a, double x) {
+	java.util.Arrays.fill(a, x);
+	return a;
+    }
+}
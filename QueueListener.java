@@ -0,0 +1,16 @@
+/* This interface is implemented by objects that need to be informed of
+   the progress of individual customers through a queue. All times are
+   queue clock times. */
+interface QueueListener {
+
+    /* Called when a customer with the specified service length arrives. */
+    public void arrived(double t, double service);
+
+    /* Called when a server begins servicing the customer who arrived at
+       the specified time. */
+    public void serviceStarted(double t, double arrival);
+
+    /* Called when the customer who arrived at the specified time leaves
+       the queue after being serviced. */
+    public void departed(double t, double arrival);
+}
@@ -0,0 +1,384 @@
+/* This class simulates an open network of M/M/s queues (a Jackson
+   network). Customers arrive at each station from outside in a Poisson
+   stream of its own, are serviced by one of its servers for an
+   exponentially distributed time, and then move to another station
+   chosen according to fixed routing probabilities or leave the
+   network. As in BirthDeathQueue, only the number of customers at each
+   station is kept, in primitive arrays indexed by station. All of the
+   stations are driven by a single calendar of pending events holding
+   the next external arrival at each station and the completion of
+   every service in progress, so that the work done per event does not
+   depend on the number of stations. */
+class QueueNetwork {
+    protected static final int ARRIVAL = 0;    // external arrival event
+    protected static final int COMPLETION = 1; // service completion event
+
+    protected RandomSource random;  // source of random values
+    protected CalendarQueue events = new CalendarQueue();
+    protected double time = 0;      // network clock
+    protected long eventCount = 0;  // number of events processed
+    protected boolean started = false;
+
+    /* Parameters of each station. */
+    protected int stations = 0;     // number of stations
+    protected int[] servers = new int[16];      // < 1 means infinity
+    protected double[] mu = new double[16];     // service rate
+    protected double[] lambda = new double[16]; // external arrival rate
+    protected int[][] targets = new int[16][];  // routing destinations
+    protected double[][] cumulative = new double[16][]; // and cumulative
+							// probabilities
+
+    /* State and statistics of each station. */
+    protected int[] state = new int[16];        // customers present
+    protected int[] maxState = new int[16];
+    protected long[] arrivals = new long[16];   // external and routed
+    protected long[] departures = new long[16]; // service completions
+    protected double[] area = new double[16];   // integral of the state
+    protected double[] changed = new double[16]; // time of last change
+    protected long exits = 0;       // customers who left the network
+
+    /* Construct an empty network that draws its random values from the
+       specified source. */
+    QueueNetwork(RandomSource r) {
+	random = r;
+    }
+
+    /* Add a station with the specified number of servers (< 1 meaning
+       infinitely many), service rate and external arrival rate (which
+       may be 0), and return its index. Stations may only be added
+       before the simulation starts. */
+    public int addStation(int s, double m, double l) {
+	if (stations == servers.length) {
+	    grow();
+	}
+	servers[stations] = s;
+	mu[stations] = m;
+	lambda[stations] = l;
+	targets[stations] = new int[0];
+	cumulative[stations] = new double[0];
+	return stations++;
+    }
+
+    /* Route customers leaving the first station to the second with the
+       specified probability. The probabilities of the routes out of a
+       station must not add up to more than 1; the remainder is the
+       probability of leaving the network. Both stations must already
+       have been added. */
+    public void addRoute(int from, int to, double p) {
+	int k;
+	int[] t;
+	double[] c;
+
+	if (from < 0 || from >= stations || to < 0 || to >= stations) {
+	    throw new IllegalArgumentException("Route from " + from + 
+					       " to " + to + 
+					       " joins an undeclared station");
+	}
+	k = targets[from].length;
+	t = new int[k + 1];
+	c = new double[k + 1];
+	System.arraycopy(targets[from], 0, t, 0, k);
+	System.arraycopy(cumulative[from], 0, c, 0, k);
+	t[k] = to;
+	c[k] = (k > 0 ? c[k - 1] : 0) + p;
+	targets[from] = t;
+	cumulative[from] = c;
+    }
+
+    /* Return true if every station has a positive service rate and a
+       nonnegative arrival rate, every route has a nonnegative
+       probability and a valid destination, and no station routes more
+       than all of its customers onward. */
+    public boolean isValid() {
+	int i, k;
+
+	for (i = 0; i < stations; i++) {
+	    if (!(mu[i] > 0) || !(lambda[i] >= 0)) {
+		return false;
+	    }
+	    for (k = 0; k < targets[i].length; k++) {
+		if (targets[i][k] < 0 || targets[i][k] >= stations ||
+		    !(getRouteProbability(i, k) >= 0)) {
+		    return false;
+		}
+	    }
+	    if (k > 0 && cumulative[i][k - 1] > 1 + 1e-9) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    public int getStationCount() { return stations; }
+    public double getTime() { return time; }
+    public long getEventCount() { return eventCount; }
+    public long getExits() { return exits; }
+    public int getServers(int i) { return servers[i]; }
+    public double getMu(int i) { return mu[i]; }
+    public double getLambda(int i) { return lambda[i]; }
+    public int getState(int i) { return state[i]; }
+    public int getMaxState(int i) { return maxState[i]; }
+    public long getArrivals(int i) { return arrivals[i]; }
+    public long getDepartures(int i) { return departures[i]; }
+
+    /* Return the number of routes out of a station. */
+    public int getRouteCount(int i) { return targets[i].length; }
+
+    /* Return the destination of the k-th route out of a station. */
+    public int getRouteTarget(int i, int k) { return targets[i][k]; }
+
+    /* Return the probability of the k-th route out of a station. */
+    public double getRouteProbability(int i, int k) {
+	return cumulative[i][k] - (k > 0 ? cumulative[i][k - 1] : 0);
+    }
+
+    /* Return the time-averaged number of customers at a station. */
+    public double getMeanState(int i) {
+	return time > 0 ? (area[i] + state[i] * (time - changed[i])) / time : 0;
+    }
+
+    /* Return the number of service completions per unit time at a
+       station. */
+    public double getThroughput(int i) {
+	return time > 0 ? departures[i] / time : 0;
+    }
+
+    /* Return the total number of customers in the network. */
+    public long getPopulation() {
+	long n = 0;
+	int i;
+
+	for (i = 0; i < stations; i++) {
+	    n += state[i];
+	}
+	return n;
+    }
+
+    /* Process events until the specified number of events have been
+       processed in total or the clock reaches the specified time. */
+    public void simulate(long maxEvents, double maxTime) {
+	if (!started) {
+	    start();
+	}
+	while (eventCount < maxEvents && events.size() > 0) {
+	    int d = events.remove();
+
+	    if (events.getTime() > maxTime) {
+		events.add(events.getTime(), d);
+		time = maxTime;
+		return;
+	    }
+	    process(d);
+	}
+    }
+
+    /* Advance the clock to the next event and process it. */
+    public void simulateEvent() {
+	if (!started) {
+	    start();
+	}
+	if (events.size() > 0) {
+	    process(events.remove());
+	}
+    }
+
+    /* Schedule the first external arrival at each station. */
+    protected void start() {
+	int i;
+
+	started = true;
+	for (i = 0; i < stations; i++) {
+	    if (lambda[i] > 0) {
+		events.add(ExponentialSampler.standard(random) / lambda[i],
+			   i << 1 | ARRIVAL);
+	    }
+	}
+    }
+
+    /* Process the event with the specified calendar data, which holds
+       the station index and the event type. */
+    protected void process(int d) {
+	int i = d >>> 1, j;
+
+	time = events.getTime();
+	eventCount++;
+	if ((d & 1) == ARRIVAL) {
+	    events.add(time + ExponentialSampler.standard(random) / lambda[i],
+		       d);
+	    arrive(i);
+	} else {
+	    departures[i]++;
+	    change(i, -1);
+	    if (servers[i] > 0 && state[i] >= servers[i]) {
+		startService(i);
+	    }
+	    j = route(i);
+	    if (j < 0) {
+		exits++;
+	    } else {
+		arrive(j);
+	    }
+	}
+    }
+
+    /* Admit a customer to a station, starting its service if a server
+       is free. */
+    protected void arrive(int i) {
+	arrivals[i]++;
+	change(i, 1);
+	if (servers[i] < 1 || state[i] <= servers[i]) {
+	    startService(i);
+	}
+    }
+
+    /* Schedule the completion of a service starting now at a station. */
+    protected void startService(int i) {
+	events.add(time + ExponentialSampler.standard(random) / mu[i],
+		   i << 1 | COMPLETION);
+    }
+
+    /* Add the specified amount to the number of customers at a station,
+       accumulating the time integral of the old value. */
+    protected void change(int i, int delta) {
+	area[i] += state[i] * (time - changed[i]);
+	changed[i] = time;
+	state[i] += delta;
+	if (state[i] > maxState[i]) {
+	    maxState[i] = state[i];
+	}
+    }
+
+    /* Choose the next station of a customer leaving the specified one by
+       binary search of its cumulative routing probabilities. Returns -1
+       if the customer leaves the network. */
+    protected int route(int i) {
+	double[] c = cumulative[i];
+	double u;
+	int lo = 0, hi = c.length, mid;
+
+	if (hi == 0) {
+	    return -1;
+	}
+	u = random.nextDouble();
+	while (lo < hi) {
+	    mid = (lo + hi) >>> 1;
+	    if (c[mid] <= u) {
+		lo = mid + 1;
+	    } else {
+		hi = mid;
+	    }
+	}
+	return lo < c.length ? targets[i][lo] : -1;
+    }
+
+    /* Solve the traffic equations, which state that the total arrival
+       rate at each station is its external arrival rate plus the rates
+       routed to it from the others, by repeated substitution. Returns
+       null if the rates do not converge, i.e., if customers can circulate
+       forever without leaving the network. */
+    public double[] solveTraffic() {
+	double[] rates = new double[stations], next;
+	double change = 1;
+	int i, k, n;
+
+	for (n = 0; n < 100000 && change > 1e-12; n++) {
+	    next = new double[stations];
+	    for (i = 0; i < stations; i++) {
+		next[i] += lambda[i];
+		for (k = 0; k < targets[i].length; k++) {
+		    next[targets[i][k]] += rates[i] * getRouteProbability(i, k);
+		}
+	    }
+	    change = 0;
+	    for (i = 0; i < stations; i++) {
+		change = Math.max(change, Math.abs(next[i] - rates[i]) / 
+				  Math.max(next[i], 1e-300));
+	    }
+	    rates = next;
+	}
+	return change > 1e-12 ? null : rates;
+    }
+
+    /* Return the steady state of each station predicted by Jackson's
+       theorem, according to which every station of a stable network
+       behaves as an isolated M/M/s queue whose arrival rate is given by
+       the traffic equations. Returns null if the traffic equations have
+       no solution. */
+    public QueueTheory[] getTheory() {
+	double[] rates = solveTraffic();
+	QueueTheory[] theory;
+	int i;
+
+	if (rates == null) {
+	    return null;
+	}
+	theory = new QueueTheory[stations];
+	for (i = 0; i < stations; i++) {
+	    theory[i] = new QueueTheory(servers[i], rates[i], mu[i]);
+	}
+	return theory;
+    }
+
+    /* Build a ring of the specified number of identical single-server
+       stations, each of which routes its customers with equal
+       probability to the next k stations around the ring and sends the
+       specified fraction out of the network. The external arrival rate
+       is chosen so that each station has the specified utilization. */
+    public static QueueNetwork createRing(int n, int k, double exit,
+					  double rho, RandomSource r) {
+	QueueNetwork net = new QueueNetwork(r);
+	int i, j;
+
+	for (i = 0; i < n; i++) {
+	    net.addStation(1, 1, rho * exit);
+	}
+	for (i = 0; i < n; i++) {
+	    for (j = 1; j <= k; j++) {
+		net.addRoute(i, (i + j) % n, (1 - exit) / k);
+	    }
+	}
+	return net;
+    }
+
+    /* Double the capacity of the per-station arrays. */
+    private void grow() {
+	int c = 2 * servers.length;
+	int[][] t = new int[c][];
+	double[][] p = new double[c][];
+
+	servers = copy(servers, c);
+	state = copy(state, c);
+	maxState = copy(maxState, c);
+	mu = copy(mu, c);
+	lambda = copy(lambda, c);
+	area = copy(area, c);
+	changed = copy(changed, c);
+	arrivals = copy(arrivals, c);
+	departures = copy(departures, c);
+	System.arraycopy(targets, 0, t, 0, stations);
+	System.arraycopy(cumulative, 0, p, 0, stations);
+	targets = t;
+	cumulative = p;
+    }
+
+    private static int[] copy(int[] a, int c) {
+	int[] b = new int[c];
+
+	System.arraycopy(a, 0, b, 0, a.length);
+	return b;
+    }
+
+    private static long[] copy(long[] a, int c) {
+	long[] b = new long[c];
+
+	System.arraycopy(a, 0, b, 0, a.length);
+	return b;
+    }
+
+    private static double[] copy(double[] a, int c) {
+	double[] b = new double[c];
+
+	System.arraycopy(a, 0, b, 0, a.length);
+	return b;
+    }
+}
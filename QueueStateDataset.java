@@ -3,30 +3,28 @@ import com.jrefinery.data.*;
 
 /* This class is used to store a series of queue states at successive times
    such that the JFreeChart package can access the data via the methods in
-   the XYDataset interface. */
+   the XYDataset interface. The entries are kept in a circular buffer of
+   primitive arrays, so that appending an entry to a full dataset
+   overwrites the oldest one in constant time. The Number objects handed
+   to JFreeChart are cached so that repainting a chart does not allocate
+   new ones for entries that have already been drawn. */
 public class QueueStateDataset extends AbstractSeriesDataset 
-    implements XYDataset {
+    implements XYDataset, BatchedDataset {
 
-    protected Vector data;       // time/state entries are stored here
+    protected double[] times;    // entry times
+    protected int[] states;      // entry states
+    protected Double[] timeValues;   // cached boxed times, if requested
+    protected Integer[] stateValues; // boxed states, indexed by state
+    protected int head = 0;      // index of the oldest entry
+    protected int size = 0;      // number of entries stored
     protected int maxSize = 100; // maximum number of entries to store 
 
-    /* This inner class is used to store the time/state pairs. */
-    class DataUnit extends Object {
-	double time;
-	int state;
-
-	DataUnit(double t, int s) {
-	    time = t;
-	    state = s;
-	}
-
-	double getTime() { return time; }
-	int getState() { return state; }
-    } 
+    protected boolean batching = false;  // hold back change notifications
+    protected volatile boolean changed = false; // a notification is pending
 
     /* Construct a dataset with the default maximum number of entries. */
     public QueueStateDataset() {
-	data = new Vector(maxSize);
+	init();
     }
 
     /* Construct a dataset with the specified maximum number of entries. */
@@ -34,83 +32,170 @@ public class QueueStateDataset extends AbstractSeriesDataset
 	if (m > 0) {
 	    maxSize = m;
 	}
-	data = new Vector(maxSize);
+	init();
+    }
+
+    /* Allocate the entry storage. */
+    private void init() {
+	times = new double[maxSize];
+	states = new int[maxSize];
+	timeValues = new Double[maxSize];
+	stateValues = new Integer[16];
+    }
+
+    /* Return the storage index of the specified item, or -1 if there is
+       no such item. */
+    protected int index(int item) {
+	if (item < 0 || item >= size) {
+	    return -1;
+	}
+	item += head;
+	return item < maxSize ? item : item - maxSize;
     }
 
+    /* Get the time of the specified item without boxing it. */
+    public double getTime(int item) { return times[index(item)]; }
+
+    /* Get the state of the specified item without boxing it. */
+    public int getState(int item) { return states[index(item)]; }
+
     /* Get the X value (i.e., the time) of the specified item in the 
        series. */
     public Number getXValue(int series, int item) {
-	DataUnit u;
-	
+	int i = index(item);
+
 	/* Return null if a nonexistent data unit is requested. */
-	try {
-	    u = (DataUnit) data.get(item);
-	} catch (ArrayIndexOutOfBoundsException e) {
+	if (i < 0) {
 	    return null;
 	}
-	return new Double(u.getTime());
+	if (timeValues[i] == null) {
+	    timeValues[i] = new Double(times[i]);
+	}
+	return timeValues[i];
     }
 
     /* Get the Y value (i.e., the state) of the specified item in the
        series. */
     public Number getYValue(int series, int item) {
-	DataUnit u;
+	int i = index(item), s;
 
 	/* Return null if a nonexistent data unit is requested. */
-	try {
-	    u = (DataUnit) data.get(item);
-	} catch (ArrayIndexOutOfBoundsException e) {
+	if (i < 0) {
 	    return null;
 	}
-	return new Integer(u.getState());
+
+	/* States are small nonnegative integers, so a single boxed value
+	   per state is shared by all of the entries. */
+	s = states[i];
+	if (s < 0) {
+	    return new Integer(s);
+	}
+	if (s >= stateValues.length) {
+	    Integer[] v = new Integer[Math.max(s + 1, 2*stateValues.length)];
+	    System.arraycopy(stateValues, 0, v, 0, stateValues.length);
+	    stateValues = v;
+	}
+	if (stateValues[s] == null) {
+	    stateValues[s] = new Integer(s);
+	}
+	return stateValues[s];
     }
 
     /* As the dataset only contains one series of data, the series
        argument is ignored. */
-    public int getItemCount(int series) { return data.size(); }
+    public int getItemCount(int series) { return size; }
     public int getSeriesCount() { return 1; }
     public String getSeriesName(int series) { return "State"; }
 
-    /* Append a time/state pair to the dataset. */
-    public boolean add(double t, int s) {	
-	boolean addStatus, removeStatus = true;
+    /* Return the maximum number of entries stored. */
+    public int getMaxSize() { return maxSize; }
+
+    /* Append a time/state pair to the dataset, overwriting the oldest
+       entry if the dataset is full. */
+    public boolean add(double t, int s) {        
+	int i;
 
-	addStatus = data.add(new DataUnit(t, s));	
-	if (data.size() > maxSize) {
-	    removeStatus = removeFirst();
+	if (size < maxSize) {
+	    size++;
+	    i = index(size - 1);
+	} else {
+	    i = head;
+	    head = head + 1 < maxSize ? head + 1 : 0;
 	}
+	times[i] = t;
+	states[i] = s;
+	timeValues[i] = null;
 
 	/* Inform all relevant chart objects that the dataset has changed
 	   and should therefore be redrawn. */
-	notifyListeners(new DatasetChangeEvent(this));
-	return addStatus && removeStatus;
+	fireChanged();
+	return true;
     }
 
-    /* Remove the indicated item from the dataset. */
-    public boolean remove(int i) {
-	try {
-	    data.remove(i);
-	} catch (ArrayIndexOutOfBoundsException e) {
+    /* Remove the indicated item from the dataset. The later items are
+       shifted toward the front, which takes time proportional to their
+       number. */
+    public boolean remove(int item) {
+	int k;
+
+	if (index(item) < 0) {
 	    return false;
 	}
-	notifyListeners(new DatasetChangeEvent(this));
+	for (k = item; k < size - 1; k++) {
+	    int to = index(k), from = index(k + 1);
+	    times[to] = times[from];
+	    states[to] = states[from];
+	    timeValues[to] = timeValues[from];
+	}
+	timeValues[index(size - 1)] = null;
+	size--;
+	fireChanged();
 	return true;
     }
     
     /* Remove the first item in the dataset. */
     public boolean removeFirst() {
-	try {
-	    data.remove(0);
-	} catch (ArrayIndexOutOfBoundsException e) {
+	if (size == 0) {
 	    return false;
 	}
-	notifyListeners(new DatasetChangeEvent(this));
+	timeValues[head] = null;
+	head = head + 1 < maxSize ? head + 1 : 0;
+	size--;
+	fireChanged();
 	return true;
     }
     
     /* Empty the entire dataset. */
     public void clear() {
-	data.clear();
-	notifyListeners(new DatasetChangeEvent(this));
+	Arrays.fill(timeValues, null);
+	head = size = 0;
+	fireChanged();
+    }
+
+    /* Enable or disable batching of change notifications. */
+    public void setBatching(boolean b) {
+	batching = b;
+	if (!b) {
+	    flush();
+	}
+    }
+
+    /* Notify the listeners if the dataset has changed since the last
+       notification. */
+    public void flush() {
+	if (changed) {
+	    changed = false;
+	    notifyListeners(new DatasetChangeEvent(this));
+	}
+    }
+
+    /* Inform all relevant chart objects that the dataset has changed,
+       or just note the change if notifications are being batched. */
+    protected void fireChanged() {
+	if (batching) {
+	    changed = true;
+	} else {
+	    notifyListeners(new DatasetChangeEvent(this));
+	}
     }
 }
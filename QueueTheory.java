@@ -0,0 +1,182 @@
+/* This class computes the steady-state behaviour of the M/M/s and
+   M/M/infinity queues that are simulated by MarkovQueue. Products of
+   powers and factorials are evaluated as sums of logarithms, and sums of
+   such terms with the log-sum-exp method, so that the results remain
+   accurate for hundreds or thousands of servers and for offered loads
+   far beyond the range of the factorial function. */
+class QueueTheory {
+    protected int servers;      // number of servers (< 1 if infinite)
+    protected double lambda;    // customer arrival parameter
+    protected double mu;        // service time parameter
+    protected double load;      // offered load lambda/mu
+    protected double rho;       // utilization per server
+
+    protected double logP0;     // log of the probability of an empty queue
+    protected double erlangC;   // probability that an arrival must wait
+
+    /* Construct the steady-state solution for a queue with the specified
+       parameters. If the servers value is not a positive integer, an
+       infinite number of servers is assumed, as in MarkovQueue. */
+    QueueTheory(int s, double l, double m) {
+	servers = s;
+	lambda = l;
+	mu = m;
+	load = l / m;
+
+	if (servers < 1) {
+	    rho = Double.NaN;
+	    logP0 = -load;
+	    erlangC = 0;
+	} else {
+	    rho = load / servers;
+	    if (isStable()) {
+		double logA = Math.log(load);
+		double logTail = logTerm(servers, logA) - Math.log(1 - rho);
+
+		logP0 = -logSumExp(logSum(servers - 1, logA), logTail);
+		erlangC = Math.exp(logP0 + logTail);
+	    } else {
+		logP0 = Double.NEGATIVE_INFINITY;
+		erlangC = 1;
+	    }
+	}
+    }
+
+    /* Return true if the queue has a steady state, i.e., if there are
+       infinitely many servers or the utilization is below 1. */
+    public boolean isStable() {
+	return servers < 1 || rho < 1;
+    }
+
+    public int getServers() { return servers; }
+    public double getLambda() { return lambda; }
+    public double getMu() { return mu; }
+    public double getLoad() { return load; }
+
+    /* Return the fraction of time each server is busy. This is undefined
+       (NaN) if there are infinitely many servers. */
+    public double getUtilization() { 
+	return servers < 1 ? Double.NaN : Math.min(rho, 1);
+    }
+
+    /* Return the probability that an arriving customer has to wait
+       (the Erlang C formula). */
+    public double getWaitProbability() { return erlangC; }
+
+    /* Return the steady-state probability of the specified state. */
+    public double getProbability(int k) {
+	if (k < 0 || !isStable()) {
+	    return 0;
+	}
+	if (servers < 1 || k <= servers) {
+	    return Math.exp(logP0 + logTerm(k, Math.log(load)));
+	}
+	return Math.exp(logP0 + logTerm(servers, Math.log(load)) 
+			+ (k - servers) * Math.log(rho));
+    }
+
+    /* Return the steady-state probabilities of the first n states. */
+    public double[] getDistribution(int n) {
+	double[] p = new double[n];
+	int k;
+
+	for (k = 0; k < n; k++) {
+	    p[k] = getProbability(k);
+	}
+	return p;
+    }
+
+    /* Return the mean number of customers waiting for service. */
+    public double getMeanWaiting() {
+	if (!isStable()) {
+	    return Double.POSITIVE_INFINITY;
+	}
+	return servers < 1 ? 0 : erlangC * rho / (1 - rho);
+    }
+
+    /* Return the mean number of customers in the queue. */
+    public double getMeanState() {
+	return getMeanWaiting() + load;
+    }
+
+    /* Return the mean number of busy servers. */
+    public double getMeanBusy() {
+	return servers < 1 ? load : Math.min(load, servers);
+    }
+
+    /* Return the mean time a customer waits for service. */
+    public double getMeanWait() {
+	return getMeanWaiting() / lambda;
+    }
+
+    /* Return the mean time a customer spends in the queue. */
+    public double getMeanSojourn() {
+	return getMeanState() / lambda;
+    }
+
+    /* Return the number of departures per unit time. */
+    public double getThroughput() {
+	return isStable() ? lambda : servers * mu;
+    }
+
+    /* Return the Erlang B (blocking) probability for the specified number
+       of servers and offered load. */
+    public static double erlangB(int s, double a) {
+	double logA = Math.log(a);
+
+	return Math.exp(logTerm(s, logA) - logSum(s, logA));
+    }
+
+    /* Return the Erlang C (waiting) probability for the specified number
+       of servers and offered load; it is 1 if the load is not less than
+       the number of servers. */
+    public static double erlangC(int s, double a) {
+	if (a >= s) {
+	    return 1;
+	}
+	double b = erlangB(s, a);
+	return s * b / (s - a * (1 - b));
+    }
+
+    /* Return the probability that a Poisson random value with the
+       specified mean assumes the specified value. */
+    public static double poissonProbability(double m, int k) {
+	if (k < 0) {
+	    return 0;
+	} else if (m == 0) {
+	    return k == 0 ? 1 : 0;
+	}
+	return Math.exp(k * Math.log(m) - m - PoissonSampler.logFactorial(k));
+    }
+
+    /* Return log(a^k/k!) given log(a). */
+    protected static double logTerm(int k, double logA) {
+	return k * logA - PoissonSampler.logFactorial(k);
+    }
+
+    /* Return the log of the sum of a^k/k! for k = 0..n given log(a). The
+       largest term is factored out before summing so that none of the
+       terms overflows. */
+    protected static double logSum(int n, double logA) {
+	double max = Double.NEGATIVE_INFINITY, sum = 0;
+	int k;
+
+	for (k = 0; k <= n; k++) {
+	    max = Math.max(max, logTerm(k, logA));
+	}
+	for (k = 0; k <= n; k++) {
+	    sum += Math.exp(logTerm(k, logA) - max);
+	}
+	return max + Math.log(sum);
+    }
+
+    /* Return log(exp(x) + exp(y)) without overflow. */
+    protected static double logSumExp(double x, double y) {
+	double max = Math.max(x, y);
+
+	if (max == Double.NEGATIVE_INFINITY) {
+	    return max;
+	}
+	return max + Math.log(Math.exp(x - max) + Math.exp(y - max));
+    }
+}
@@ -0,0 +1,18 @@
+/* This interface describes a source of uniformly distributed random
+   values used by the queue simulation. Implementations are not
+   synchronized; each simulation thread should use its own source,
+   obtained from a common parent with split(), so that threads never
+   contend for shared generator state and every run can be reproduced
+   from its seed. */
+interface RandomSource {
+
+    /* Return 64 uniformly distributed random bits. */
+    public long nextLong();
+
+    /* Return a uniformly distributed value in [0, 1). */
+    public double nextDouble();
+
+    /* Return a new source whose stream is independent of the rest of
+       this one's. */
+    public RandomSource split();
+}
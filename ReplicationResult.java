@@ -0,0 +1,80 @@
+/* This class holds the statistics of a set of independent replications
+   of a simulation run and combines them into overall estimates with
+   confidence intervals. */
+class ReplicationResult {
+
+    /* Run statistics that can be estimated. */
+    public static final int MEAN_STATE = 0;
+    public static final int MEAN_WAITING = 1;
+    public static final int UTILIZATION = 2;
+    public static final int THROUGHPUT = 3;
+    public static final int MEAN_SOJOURN = 4;
+    public static final int MEAN_WAIT = 5;
+    public static final int WAIT_P50 = 6;
+    public static final int WAIT_P99 = 7;
+    public static final int WAIT_P999 = 8;
+
+    protected RunStatistics[] runs; // statistics of each replication
+    protected RunStatistics merged; // statistics pooled over all runs
+    protected double level = 0.95;  // confidence level of the estimates
+
+    /* Construct a result from the statistics of the replications of a
+       queue with the specified number of servers. */
+    ReplicationResult(int servers, RunStatistics[] r) {
+	int i;
+
+	runs = r;
+	merged = new RunStatistics(servers);
+	for (i = 0; i < runs.length; i++) {
+	    merged.merge(runs[i]);
+	}
+    }
+
+    /* Set the confidence level used by subsequently returned estimates. */
+    public void setLevel(double l) { level = l; }
+    public double getLevel() { return level; }
+
+    public int getReplications() { return runs.length; }
+    public RunStatistics getRun(int i) { return runs[i]; }
+    public RunStatistics getMerged() { return merged; }
+
+    public Estimate getMeanState() { return estimate(MEAN_STATE); }
+    public Estimate getMeanWaiting() { return estimate(MEAN_WAITING); }
+    public Estimate getUtilization() { return estimate(UTILIZATION); }
+    public Estimate getThroughput() { return estimate(THROUGHPUT); }
+    public Estimate getMeanSojourn() { return estimate(MEAN_SOJOURN); }
+    public Estimate getMeanWait() { return estimate(MEAN_WAIT); }
+    public Estimate getWaitP50() { return estimate(WAIT_P50); }
+    public Estimate getWaitP99() { return estimate(WAIT_P99); }
+    public Estimate getWaitP999() { return estimate(WAIT_P999); }
+
+    /* Estimate the specified statistic from its values in each of the
+       replications. */
+    public Estimate estimate(int statistic) {
+	double[] x = new double[runs.length];
+	int i;
+
+	for (i = 0; i < runs.length; i++) {
+	    x[i] = value(runs[i], statistic);
+	}
+	return new Estimate(x, level);
+    }
+
+    /* Return the value of the specified statistic in a single run. */
+    public static double value(RunStatistics r, int statistic) {
+	switch (statistic) {
+	case MEAN_STATE:   return r.getMeanState();
+	case MEAN_WAITING: return r.getMeanWaiting();
+	case UTILIZATION:  return r.getUtilization();
+	case THROUGHPUT:   return r.getThroughput();
+	case MEAN_SOJOURN: return r.getMeanSojourn();
+	case MEAN_WAIT:    return r.getMeanWait();
+	case WAIT_P50:     return r.getWaitQuantile(0.5);
+	case WAIT_P99:     return r.getWaitQuantile(0.99);
+	case WAIT_P999:    return r.getWaitQuantile(0.999);
+	default:
+	    throw new IllegalArgumentException("Unknown statistic " + 
+					       statistic);
+	}
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.concurrent.*;
+
+/* This class runs a number of independent replications of a queue
+   simulation in parallel on a fork-join pool. Each replication draws
+   from its own random stream, split off the runner's source before any
+   work begins, so the results depend only on the seed and not on the
+   number of threads or the order in which replications finish. */
+class ReplicationRunner {
+    protected SimulationSettings settings;
+    protected int replications;
+    protected RandomSource random;
+    protected ForkJoinPool pool;
+
+    /* Construct a runner for the specified number of replications of
+       the specified simulation that uses all available processors. */
+    ReplicationRunner(SimulationSettings s, int n, RandomSource r) {
+	this(s, n, r, ForkJoinPool.commonPool());
+    }
+
+    /* Construct a runner that uses the specified pool. */
+    ReplicationRunner(SimulationSettings s, int n, RandomSource r, 
+		      ForkJoinPool p) {
+	settings = s;
+	replications = n;
+	random = r;
+	pool = p;
+    }
+
+    /* Run all of the replications and return their results. */
+    public ReplicationResult run() {
+	RandomSource[] streams = new RandomSource[replications];
+	RunStatistics[] results = new RunStatistics[replications];
+	int i;
+
+	for (i = 0; i < replications; i++) {
+	    streams[i] = random.split();
+	}
+	pool.invoke(new ReplicationTask(streams, results, 0, replications));
+	return new ReplicationResult(settings.getServers(), results);
+    }
+
+    /* This task runs the replications in a range of indices, splitting
+       the range in half until a single replication remains so that idle
+       workers can steal the other halves. */
+    class ReplicationTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	RandomSource[] streams;
+	RunStatistics[] results;
+	int from, to;
+
+	ReplicationTask(RandomSource[] s, RunStatistics[] r, int f, int t) {
+	    streams = s;
+	    results = r;
+	    from = f;
+	    to = t;
+	}
+
+	protected void compute() {
+	    if (to - from == 1) {
+		results[from] = settings.run(streams[from]);
+	    } else {
+		int mid = (from + to) >>> 1;
+		invokeAll(new ReplicationTask(streams, results, from, mid),
+			  new ReplicationTask(streams, results, mid, to));
+	    }
+	}
+    }
+}
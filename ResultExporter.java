@@ -0,0 +1,205 @@
+import java.io.*;
+
+/* This class exports the results of a simulation run as it proceeds, in
+   either CSV or columnar binary format (see CsvTableWriter and
+   ColumnarTableWriter). Four tables are written, with names formed by
+   appending a suffix to a common prefix:
+
+     -steps      time, state, arrivals and departures after each step;
+     -customers  arrival, service start, service length and departure
+		 time of each customer, written when the customer leaves
+		 (so customers still present at the end are not listed);
+     -states     number of steps after which the queue was in each state;
+     -services   bounds of each service length histogram bin and the
+		 number of service lengths in it.
+
+   The first two tables are streamed to disk, and the other two are
+   written when the exporter is closed, so that memory use does not
+   depend on the length of the run. Customers are served in order of
+   arrival, so the service length of each customer is taken from a line
+   of those who have arrived but not yet started service. The customers
+   in service then leave in order of the time at which their service
+   would end, which is kept in a heap; under the fixed-tick engine,
+   they actually leave at the end of the step in which that happens.
+   Their times are stored in slots of parallel arrays, which are reused
+   once they leave. As the
+   listener methods cannot throw I/O exceptions, the first exception
+   that occurs stops the export; it is thrown again by close(). */
+class ResultExporter implements QueueListener, StepListener, Closeable {
+    protected String prefix;
+    protected boolean columnar;
+    protected TableWriter steps, customers;
+    protected CustomerBuffer waiting = new CustomerBuffer();
+    protected DepartureHeap serving = new DepartureHeap(); // slots by end
+    protected double[] slotArrivals = new double[16];
+    protected double[] slotStarts = new double[16];
+    protected double[] slotServices = new double[16];
+    protected int[] freeSlots = new int[16]; // stack of unused slots
+    protected int freeCount = 0, slotCount = 0;
+    protected long[] stateCounts = new long[16];
+    protected Histogram services;
+    protected IOException error;    // first exception that occurred
+
+    /* Construct an exporter that writes tables with the specified
+       prefix in CSV or columnar format and counts the service lengths
+       in bins of width 0.5. */
+    ResultExporter(String p, boolean c) throws IOException {
+	this(p, c, new Histogram());
+    }
+
+    /* Construct an exporter that counts the service lengths in the
+       specified histogram. */
+    ResultExporter(String p, boolean c, Histogram h) throws IOException {
+	prefix = p;
+	columnar = c;
+	services = h;
+	steps = create("steps", 
+		       new String[] {"time", "state", "arrivals", 
+				     "departures"}, 
+		       new char[] {'d', 'i', 'i', 'i'});
+	customers = create("customers", 
+			   new String[] {"arrival", "start", "service", 
+					 "departure"},
+			   new char[] {'d', 'd', 'd', 'd'});
+    }
+
+    /* Create a table writer of the selected format. */
+    protected TableWriter create(String name, String[] n, char[] t) 
+	throws IOException {
+	String base = prefix + "-" + name;
+
+	if (columnar) {
+	    return new ColumnarTableWriter(base, n, t);
+	} else {
+	    return new CsvTableWriter(base + ".csv", n, t);
+	}
+    }
+
+    public void stepped(MarkovQueue q) {
+	int s = q.getState();
+
+	if (s >= stateCounts.length) {
+	    long[] c = new long[Math.max(s + 1, 2*stateCounts.length)];
+	    System.arraycopy(stateCounts, 0, c, 0, stateCounts.length);
+	    stateCounts = c;
+	}
+	if (s >= 0) {
+	    stateCounts[s]++;
+	}
+	if (error != null) {
+	    return;
+	}
+	try {
+	    steps.putDouble(q.getTime());
+	    steps.putInt(s);
+	    steps.putInt(q.getLastArrivals());
+	    steps.putInt(q.getLastDepartures());
+	    steps.endRow();
+	} catch (IOException e) {
+	    error = e;
+	}
+    }
+
+    public void arrived(double t, double service) {
+	waiting.add(service, t);
+	services.record(service);
+    }
+
+    public void serviceStarted(double t, double arrival) {
+	double s = waiting.getService(0);
+	int n;
+
+	waiting.removeFirst();
+	if (freeCount > 0) {
+	    n = freeSlots[--freeCount];
+	} else {
+	    if (slotCount == slotArrivals.length) {
+		growSlots();
+	    }
+	    n = slotCount++;
+	}
+	slotArrivals[n] = arrival;
+	slotStarts[n] = t;
+	slotServices[n] = s;
+	serving.add(t + s, n);
+    }
+
+    /* Write the row of the customer whose service ends first, with the
+       specified departure time. */
+    public void departed(double t, double arrival) {
+	int n = (int) serving.peekArrival();
+
+	serving.remove();
+	freeSlots[freeCount++] = n;
+	if (error != null) {
+	    return;
+	}
+	try {
+	    customers.putDouble(slotArrivals[n]);
+	    customers.putDouble(slotStarts[n]);
+	    customers.putDouble(slotServices[n]);
+	    customers.putDouble(t);
+	    customers.endRow();
+	} catch (IOException e) {
+	    error = e;
+	}
+    }
+
+    /* Double the number of slots for customers in service. */
+    private void growSlots() {
+	int c = 2*slotArrivals.length;
+	double[] a = new double[c], st = new double[c], sv = new double[c];
+	int[] f = new int[c];
+
+	System.arraycopy(slotArrivals, 0, a, 0, slotCount);
+	System.arraycopy(slotStarts, 0, st, 0, slotCount);
+	System.arraycopy(slotServices, 0, sv, 0, slotCount);
+	slotArrivals = a;
+	slotStarts = st;
+	slotServices = sv;
+	freeSlots = f;
+    }
+
+    /* Write the state and service length tables and close all of the
+       tables. Throws the first exception that occurred while
+       exporting, if any. */
+    public void close() throws IOException {
+	TableWriter w;
+	int i;
+
+	try {
+	    if (error != null) {
+		throw error;
+	    }
+	    w = create("states", new String[] {"state", "steps"}, 
+		       new char[] {'i', 'l'});
+	    try {
+		for (i = 0; i < stateCounts.length; i++) {
+		    if (stateCounts[i] > 0) {
+			w.putInt(i);
+			w.putLong(stateCounts[i]);
+			w.endRow();
+		    }
+		}
+	    } finally {
+		w.close();
+	    }
+
+	    w = create("services", new String[] {"lower", "upper", "count"},
+		       new char[] {'d', 'd', 'l'});
+	    try {
+		for (i = 0; i < services.getBinCount(); i++) {
+		    w.putDouble(services.getLower(i));
+		    w.putDouble(services.getUpper(i));
+		    w.putLong(services.getCount(i));
+		    w.endRow();
+		}
+	    } finally {
+		w.close();
+	    }
+	} finally {
+	    steps.close();
+	    customers.close();
+	}
+    }
+}
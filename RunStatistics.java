@@ -0,0 +1,164 @@
+/* This class accumulates summary statistics for a single simulation run
+   by sampling a queue after each step. The state observed after a step
+   is taken to hold until the next step, so that time averages are exact
+   for the next-event engine and accurate to within one tick for the
+   fixed-tick engine. The waiting and sojourn times of individual
+   customers are collected by listening to the queue. All statistics
+   use constant memory, and those from several runs with the same
+   parameters can be merged. */
+class RunStatistics {
+    protected int servers;          // number of servers (< 1 if infinite)
+
+    protected long steps = 0;       // number of steps recorded
+    protected long arrivals = 0;    // total number of arrivals
+    protected long departures = 0;  // total number of departures
+    protected int maxState = 0;     // largest state observed
+
+    protected double startTime = 0; // queue time when recording began
+    protected double lastTime = 0;  // queue time of the last step recorded
+    protected int lastState = 0;    // queue state after the last step
+    protected double stateArea = 0; // integral of the state over time
+    protected double squareArea = 0; // integral of the squared state
+    protected double busyArea = 0;  // integral of the busy servers over time
+
+    protected CustomerStatistics customers = new CustomerStatistics();
+
+    /* Construct an accumulator for a queue with the specified number of
+       servers. */
+    RunStatistics(int s) {
+	servers = s;
+    }
+
+    /* Begin recording the specified queue from its current time. */
+    public void start(MarkovQueue q) {
+	q.addListener(customers);
+	startTime = lastTime = q.getTime();
+	lastState = q.getState();
+	if (lastState > maxState) {
+	    maxState = lastState;
+	}
+    }
+
+    /* Record the outcome of the step just taken by the specified queue. */
+    public void record(MarkovQueue q) {
+	double dt = q.getTime() - lastTime;
+
+	stateArea += lastState * dt;
+	squareArea += (double) lastState * lastState * dt;
+	busyArea += busy(lastState) * dt;
+
+	steps++;
+	arrivals += q.getLastArrivals();
+	departures += q.getLastDepartures();
+
+	lastTime = q.getTime();
+	lastState = q.getState();
+	if (lastState > maxState) {
+	    maxState = lastState;
+	}
+    }
+
+    /* Add the statistics accumulated by another run to these ones. The
+       elapsed times of the runs are added, so the merged time averages
+       are averages over all of the runs. */
+    public void merge(RunStatistics r) {
+	steps += r.steps;
+	arrivals += r.arrivals;
+	departures += r.departures;
+	if (r.maxState > maxState) {
+	    maxState = r.maxState;
+	}
+	lastTime += r.getElapsedTime();
+	stateArea += r.stateArea;
+	squareArea += r.squareArea;
+	busyArea += r.busyArea;
+	customers.merge(r.customers);
+    }
+
+    /* Return the number of servers busy when the queue is in the
+       specified state. */
+    protected int busy(int s) {
+	return (servers < 1 || s < servers) ? s : servers;
+    }
+
+    public long getSteps() { return steps; }
+    public long getArrivals() { return arrivals; }
+    public long getDepartures() { return departures; }
+    public int getMaxState() { return maxState; }
+
+    /* Return the length of simulated time recorded. */
+    public double getElapsedTime() { return lastTime - startTime; }
+
+    /* Return the time-averaged number of customers in the queue. */
+    public double getMeanState() {
+	return stateArea / getElapsedTime();
+    }
+
+    /* Return the time-averaged variance of the number of customers in
+       the queue. */
+    public double getStateVariance() {
+	double m = getMeanState();
+	return squareArea / getElapsedTime() - m * m;
+    }
+
+    /* Return the time-averaged number of busy servers. */
+    public double getMeanBusy() {
+	return busyArea / getElapsedTime();
+    }
+
+    /* Return the fraction of time each server is busy. If there are
+       infinitely many servers, this is undefined and NaN is returned. */
+    public double getUtilization() {
+	return servers < 1 ? Double.NaN : getMeanBusy() / servers;
+    }
+
+    /* Return the time-averaged number of customers waiting for service. */
+    public double getMeanWaiting() {
+	return getMeanState() - getMeanBusy();
+    }
+
+    /* Return the number of departures per unit time. */
+    public double getThroughput() {
+	return departures / getElapsedTime();
+    }
+
+    /* Return the waiting and sojourn time statistics. */
+    public CustomerStatistics getCustomers() { return customers; }
+
+    /* Return true if the waiting and sojourn times of individual
+       customers were observed. Aggregate queues do not track customers,
+       so their runs report none. */
+    public boolean hasCustomers() {
+	return customers.getSojourn().getCount() > 0;
+    }
+
+    /* Return the mean time spent in the queue by the customers who
+       have departed. If no customers were observed, it is derived from
+       the mean state and the throughput by Little's law. */
+    public double getMeanSojourn() {
+	if (!hasCustomers()) {
+	    return getMeanState() / getThroughput();
+	}
+	return customers.getSojourn().getMean();
+    }
+
+    /* Return the mean time waited for service by the customers whose
+       service has started. If no customers were observed, it is derived
+       from the mean number waiting by Little's law. */
+    public double getMeanWait() {
+	if (!hasCustomers()) {
+	    return getMeanWaiting() / getThroughput();
+	}
+	return customers.getWait().getMean();
+    }
+
+    /* Return the specified quantile of the waiting time. */
+    public double getWaitQuantile(double q) {
+	return customers.getWaitQuantile(q);
+    }
+
+    /* Return the specified quantile of the sojourn time. */
+    public double getSojournQuantile(double q) {
+	return customers.getSojournQuantile(q);
+    }
+}
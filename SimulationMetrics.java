@@ -0,0 +1,168 @@
+import java.lang.management.ManagementFactory;
+import javax.management.*;
+
+/* This class collects metrics of the throughput of a running
+   simulation and of the cost of displaying it, so that it can be seen
+   whether a run is limited by the simulation engine, the chart
+   datasets, or the drawing of the charts. The step metrics are written
+   by the simulation thread and the others by the event dispatching
+   thread; each metric has a single writer, and readers such as the
+   JMX agent may see slightly stale values. */
+public class SimulationMetrics implements SimulationMetricsMBean {
+    protected volatile long steps = 0, events = 0;
+    protected volatile int customers = 0, peakCustomers = 0;
+    protected long stepStart = 0;   // time at which the current step began
+
+    protected LatencyRecorder stepTimes = new LatencyRecorder();
+    protected LatencyRecorder updateTimes = new LatencyRecorder();
+    protected LatencyRecorder repaintTimes = new LatencyRecorder();
+
+    /* Counts and time at which the rates were last computed. */
+    protected long rateTime = System.nanoTime(), rateSteps, rateEvents;
+    protected double stepRate = 0, eventRate = 0;
+
+    protected ObjectName name = null; // name under which it is registered
+
+    /* Register the metrics with the platform MBean server under the
+       specified name, e.g., "markovapplet:type=SimulationMetrics,id=1".
+       A bean left under the same name by an instance that was never
+       unregistered is replaced. Returns false if the metrics cannot be
+       registered. */
+    public boolean register(String n) {
+	MBeanServer server;
+
+	try {
+	    server = ManagementFactory.getPlatformMBeanServer();
+	    name = new ObjectName(n);
+	    if (server.isRegistered(name)) {
+		server.unregisterMBean(name);
+	    }
+	    server.registerMBean(this, name);
+	    return true;
+	} catch (JMException e) {
+	    System.out.println("Cannot register metrics: " + e);
+	} catch (SecurityException e) {
+	    System.out.println("Cannot register metrics: " + e);
+	}
+	name = null;
+	return false;
+    }
+
+    /* Remove the metrics from the platform MBean server, if they were
+       registered and have not been removed since. */
+    public void unregister() {
+	if (name == null) {
+	    return;
+	}
+	try {
+	    ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	} catch (InstanceNotFoundException e) {
+	    /* Already replaced by another instance and removed. */
+	} catch (JMException e) {
+	    System.out.println("Cannot unregister metrics: " + e);
+	} catch (SecurityException e) {
+	    System.out.println("Cannot unregister metrics: " + e);
+	}
+	name = null;
+    }
+
+    /* Note that a simulation step is about to begin. */
+    public void beginStep() {
+	stepStart = System.nanoTime();
+    }
+
+    /* Note that the specified queue has completed the step begun by the
+       last call to beginStep(). */
+    public void endStep(MarkovQueue q) {
+	int s = q.getState();
+
+	stepTimes.record(System.nanoTime() - stepStart);
+	steps++;
+	events += q.getLastArrivals() + q.getLastDepartures();
+	customers = s;
+	if (s > peakCustomers) {
+	    peakCustomers = s;
+	}
+    }
+
+    /* Record the time taken to apply a batch of steps to the chart
+       datasets. */
+    public void recordDatasetUpdate(long ns) {
+	updateTimes.record(ns);
+    }
+
+    /* Record the time taken to repaint a chart. */
+    public void recordRepaint(long ns) {
+	repaintTimes.record(ns);
+    }
+
+    public long getSteps() { return steps; }
+    public long getEvents() { return events; }
+
+    public double getStepsPerSecond() {
+	updateRates();
+	return stepRate;
+    }
+
+    public double getEventsPerSecond() {
+	updateRates();
+	return eventRate;
+    }
+
+    public int getCustomers() { return customers; }
+    public int getPeakCustomers() { return peakCustomers; }
+
+    public double getMeanStepTime() { return stepTimes.getMean(); }
+    public long getStepTimeP99() { return stepTimes.getQuantile(0.99); }
+
+    public double getMeanDatasetUpdateTime() { 
+	return updateTimes.getMean(); 
+    }
+    public long getDatasetUpdateTimeP99() { 
+	return updateTimes.getQuantile(0.99); 
+    }
+
+    public double getMeanRepaintTime() { return repaintTimes.getMean(); }
+    public long getRepaintTimeP99() { return repaintTimes.getQuantile(0.99); }
+
+    /* Discard the metrics collected so far. Metrics written while the
+       reset takes place may be lost. */
+    public synchronized void reset() {
+	steps = events = 0;
+	customers = peakCustomers = 0;
+	stepTimes.clear();
+	updateTimes.clear();
+	repaintTimes.clear();
+	rateTime = System.nanoTime();
+	rateSteps = rateEvents = 0;
+	stepRate = eventRate = 0;
+    }
+
+    /* Recompute the rates if at least a second has passed since they
+       were last computed. */
+    protected synchronized void updateRates() {
+	long now = System.nanoTime(), s = steps, e = events;
+	double dt = (now - rateTime) / 1e9;
+
+	if (dt >= 1) {
+	    stepRate = (s - rateSteps) / dt;
+	    eventRate = (e - rateEvents) / dt;
+	    rateTime = now;
+	    rateSteps = s;
+	    rateEvents = e;
+	}
+    }
+
+    public String toString() {
+	return "steps = " + steps + 
+	    ", events = " + events + 
+	    ", peak customers = " + peakCustomers + 
+	    ", step time (ns) mean/p99 = " + 
+	    Math.round(getMeanStepTime()) + "/" + getStepTimeP99() + 
+	    ", dataset update (ns) mean/p99 = " + 
+	    Math.round(getMeanDatasetUpdateTime()) + "/" + 
+	    getDatasetUpdateTimeP99() +
+	    ", repaint (ns) mean/p99 = " + 
+	    Math.round(getMeanRepaintTime()) + "/" + getRepaintTimeP99();
+    }
+}
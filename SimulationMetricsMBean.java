@@ -0,0 +1,33 @@
+/* This is the management interface through which the metrics collected
+   by a SimulationMetrics object are exposed over JMX, e.g., to
+   jconsole. All durations are in nanoseconds. */
+public interface SimulationMetricsMBean {
+
+    /* Number of steps taken and of arrivals and departures that took
+       place in them. */
+    public long getSteps();
+    public long getEvents();
+
+    /* Rates of steps and events over the last second or more. */
+    public double getStepsPerSecond();
+    public double getEventsPerSecond();
+
+    /* Number of customers in the queue now and at most. */
+    public int getCustomers();
+    public int getPeakCustomers();
+
+    /* Time taken by each simulation step. */
+    public double getMeanStepTime();
+    public long getStepTimeP99();
+
+    /* Time taken to apply each batch of steps to the chart datasets. */
+    public double getMeanDatasetUpdateTime();
+    public long getDatasetUpdateTimeP99();
+
+    /* Time taken to repaint each chart. */
+    public double getMeanRepaintTime();
+    public long getRepaintTimeP99();
+
+    /* Discard the metrics collected so far. */
+    public void reset();
+}
@@ -0,0 +1,128 @@
+/* This class holds the parameters of a queue simulation run, i.e., the
+   values collected by the applet's settings dialog together with the
+   choice of engine and the limits on the length of the run, and can
+   create and run queues with those parameters. */
+class SimulationSettings {
+    protected int servers = 1;
+    protected double tick = 0.1;
+    protected double lambda = 1;
+    protected double mu = 1;
+    protected boolean event = false; // use the next-event engine
+    protected boolean aggregate = false; // track the queue length only
+
+    /* Run limits; a run stops when either is reached. */
+    protected long maxSteps = 1000000;
+    protected double maxTime = Double.POSITIVE_INFINITY;
+
+    /* Construct settings with the default parameters. */
+    SimulationSettings() {
+    }
+
+    /* Construct settings with the specified queue parameters. */
+    SimulationSettings(int s, double t, double l, double m, boolean e) {
+	servers = s;
+	tick = t;
+	lambda = l;
+	mu = m;
+	event = e;
+    }
+
+    /* Return a copy of these settings. */
+    public SimulationSettings copy() {
+	SimulationSettings c = new SimulationSettings(servers, tick, 
+						      lambda, mu, event);
+	c.setLimits(maxSteps, maxTime);
+	c.setAggregate(aggregate);
+	return c;
+    }
+
+    /* Set the maximum number of steps and length of simulated time. If
+       the next-event engine is used, each step is a single event. */
+    public void setLimits(long n, double t) {
+	maxSteps = n;
+	maxTime = t;
+    }
+
+    /* Select the birth-death engine, which tracks the number of
+       customers rather than the customers themselves. Customer
+       statistics are not available with this engine. */
+    public void setAggregate(boolean a) {
+	aggregate = a;
+    }
+
+    public int getServers() { return servers; }
+    public double getTick() { return tick; }
+    public double getLambda() { return lambda; }
+    public double getMu() { return mu; }
+    public boolean getEvent() { return event; }
+    public boolean getAggregate() { return aggregate; }
+    public long getMaxSteps() { return maxSteps; }
+    public double getMaxTime() { return maxTime; }
+
+    /* Check whether the parameters are acceptable, applying the same
+       checks as the settings dialog. */
+    public boolean isValid() {
+	return servers != 0 && tick > 0 && lambda > 0 && mu > 0;
+    }
+
+    /* Create a new queue with these parameters that draws from the
+       specified random source. */
+    public MarkovQueue createQueue(RandomSource r) {
+	if (aggregate) {
+	    return new BirthDeathQueue(servers, tick, lambda, mu, r);
+	} else if (event) {
+	    return new EventMarkovQueue(servers, tick, lambda, mu, r);
+	} else {
+	    return new MarkovQueue(servers, tick, lambda, mu, r);
+	}
+    }
+
+    /* Run a new queue that draws from the specified random source until
+       one of the limits is reached, and return its statistics. */
+    public RunStatistics run(RandomSource r) {
+	return simulate(createQueue(r));
+    }
+
+    /* Run the specified queue until one of the limits is reached. */
+    public RunStatistics simulate(MarkovQueue queue) {
+	return simulate(queue, null);
+    }
+
+    /* Run the specified queue until one of the limits is reached,
+       informing the specified listener (if not null) of each step. */
+    public RunStatistics simulate(MarkovQueue queue, StepListener l) {
+	RunStatistics stats = new RunStatistics(servers);
+	long i;
+
+	stats.start(queue);
+	if (event) {
+	    EventMarkovQueue q = (EventMarkovQueue) queue;
+
+	    for (i = 0; i < maxSteps && q.getNextEventTime() <= maxTime; i++) {
+		q.simulateEvent();
+		stats.record(q);
+		if (l != null) {
+		    l.stepped(q);
+		}
+	    }
+	} else {
+	    for (i = 0; i < maxSteps && queue.getTime() < maxTime; i++) {
+		queue.simulateStep();
+		stats.record(queue);
+		if (l != null) {
+		    l.stepped(queue);
+		}
+	    }
+	}
+	return stats;
+    }
+
+    public String toString() {
+	return "servers = " + servers + 
+	    ", tick = " + tick + 
+	    ", lambda = " + lambda + 
+	    ", mu = " + mu + 
+	    ", next-event = " + event + 
+	    (aggregate ? ", aggregate = true" : "");
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.SplittableRandom;
+
+/* This class adapts the JDK's SplittableRandom generator to the
+   RandomSource interface. */
+class SplittableRandomSource implements RandomSource {
+    protected SplittableRandom random;
+
+    /* Construct a source with an arbitrary seed. */
+    SplittableRandomSource() {
+	random = new SplittableRandom();
+    }
+
+    /* Construct a source with the specified seed. */
+    SplittableRandomSource(long seed) {
+	random = new SplittableRandom(seed);
+    }
+
+    /* Wrap an existing generator. */
+    private SplittableRandomSource(SplittableRandom r) {
+	random = r;
+    }
+
+    public long nextLong() { return random.nextLong(); }
+
+    public double nextDouble() { return random.nextDouble(); }
+
+    public RandomSource split() {
+	return new SplittableRandomSource(random.split());
+    }
+}
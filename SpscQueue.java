@@ -0,0 +1,69 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/* This class implements a bounded, lock-free queue for passing objects
+   from exactly one producer thread to exactly one consumer thread. Each
+   side only ever writes its own index and publishes it with an ordered
+   store, and caches the other side's index so that it rarely has to
+   read the shared one. Neither side ever blocks; offer() fails when the
+   queue is full and poll() returns null when it is empty. */
+class SpscQueue {
+    private final Object[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to read
+    private final AtomicLong tail = new AtomicLong(); // next slot to write
+    private long cachedHead = 0; // producer's copy of head
+    private long cachedTail = 0; // consumer's copy of tail
+
+    /* Construct a queue that holds at least the specified number of
+       objects. */
+    SpscQueue(int capacity) {
+	int c = 1;
+
+	while (c < capacity) {
+	    c <<= 1;
+	}
+	buffer = new Object[c];
+	mask = c - 1;
+    }
+
+    /* Append an object to the queue. Returns false if the queue is full.
+       May only be called by the producer thread. */
+    public boolean offer(Object o) {
+	long t = tail.get();
+
+	if (t - cachedHead >= buffer.length) {
+	    cachedHead = head.get();
+	    if (t - cachedHead >= buffer.length) {
+		return false;
+	    }
+	}
+	buffer[(int) t & mask] = o;
+	tail.lazySet(t + 1);
+	return true;
+    }
+
+    /* Remove and return the object at the front of the queue, or null if
+       the queue is empty. May only be called by the consumer thread. */
+    public Object poll() {
+	long h = head.get();
+	int i;
+	Object o;
+
+	if (h >= cachedTail) {
+	    cachedTail = tail.get();
+	    if (h >= cachedTail) {
+		return null;
+	    }
+	}
+	i = (int) h & mask;
+	o = buffer[i];
+	buffer[i] = null;
+	head.lazySet(h + 1);
+	return o;
+    }
+
+    /* Return true if the consumer has taken everything offered so far. */
+    public boolean isEmpty() {
+	return head.get() == tail.get();
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.*;
+
+/* This class holds the outcomes of a run of consecutive simulation
+   steps, i.e., the queue time, state, and numbers of arrivals and
+   departures after each step, and the service lengths of all of the
+   arrivals. It is filled in by the simulation thread and then handed
+   over to the event dispatching thread, after which it is no longer
+   modified. */
+class StepBatch {
+    protected double[] times;
+    protected int[] states, arrivals, departures;
+    protected int count = 0;
+
+    protected double[] services = new double[16];
+    protected int serviceCount = 0;
+
+    /* Construct a batch that holds the specified number of steps. */
+    StepBatch(int capacity) {
+	times = new double[capacity];
+	states = new int[capacity];
+	arrivals = new int[capacity];
+	departures = new int[capacity];
+    }
+
+    /* Return true if no more steps can be added to the batch. */
+    public boolean isFull() { return count == times.length; }
+
+    /* Return the number of steps in the batch. */
+    public int size() { return count; }
+
+    /* Record the outcome of the step just taken by the specified queue. */
+    public void add(MarkovQueue q) {
+	Vector v = q.getLastServiceLengths();
+	int i;
+
+	add(q.getTime(), q.getState(), q.getLastArrivals(), 
+	    q.getLastDepartures());
+	for (i = 0; i < v.size(); i++) {
+	    addService(((Double) v.get(i)).doubleValue());
+	}
+    }
+
+    /* Record the time, state, and numbers of arrivals and departures
+       after a step. */
+    public void add(double t, int s, int a, int d) {
+	times[count] = t;
+	states[count] = s;
+	arrivals[count] = a;
+	departures[count] = d;
+	count++;
+    }
+
+    /* Record the service length of an arrival. */
+    public void addService(double x) {
+	if (serviceCount == services.length) {
+	    double[] s = new double[2*services.length];
+	    System.arraycopy(services, 0, s, 0, serviceCount);
+	    services = s;
+	}
+	services[serviceCount++] = x;
+    }
+
+    public double getTime(int i) { return times[i]; }
+    public int getState(int i) { return states[i]; }
+    public int getArrivals(int i) { return arrivals[i]; }
+    public int getDepartures(int i) { return departures[i]; }
+
+    /* Return the number of service lengths in the batch. */
+    public int getServiceCount() { return serviceCount; }
+
+    /* Return the specified service length. */
+    public double getService(int i) { return services[i]; }
+}
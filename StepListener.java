@@ -0,0 +1,7 @@
+/* This interface is implemented by objects that need to be informed of
+   the outcome of each step of a queue simulation. */
+interface StepListener {
+
+    /* Called after the specified queue has taken a step. */
+    public void stepped(MarkovQueue q);
+}
@@ -0,0 +1,70 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/* This class is the base of the classes that write a table of results
+   to disk one row at a time. The values of a row are passed in column
+   order, followed by a call to endRow(). Each column holds values of a
+   single type: 'd' (double), 'i' (int) or 'l' (long). The rows are
+   gathered in buffers of bounded size that are written through NIO
+   channels as they fill up, so that a table of any length can be
+   written without holding it in memory. */
+abstract class TableWriter {
+    protected static final int BUFFER_SIZE = 64 << 10;
+
+    protected String[] names;   // column names
+    protected char[] types;     // column types
+    protected int column = 0;   // column of the next value
+    protected long rows = 0;    // number of rows written
+
+    /* Construct a writer for a table with the specified columns. */
+    TableWriter(String[] n, char[] t) {
+	if (n.length != t.length) {
+	    throw new IllegalArgumentException("Column names and types " +
+					       "do not match");
+	}
+	names = n;
+	types = t;
+    }
+
+    /* Return the number of rows written. */
+    public long getRowCount() { return rows; }
+
+    /* Write the value of the next column of the current row. */
+    public abstract void putDouble(double x) throws IOException;
+    public abstract void putInt(int x) throws IOException;
+    public abstract void putLong(long x) throws IOException;
+
+    /* Finish the current row. */
+    public void endRow() throws IOException {
+	if (column != names.length) {
+	    throw new IllegalStateException("Incomplete row");
+	}
+	column = 0;
+	rows++;
+    }
+
+    /* Write the remaining rows and close the table. */
+    public abstract void close() throws IOException;
+
+    /* Check that the next value is of the specified type, and return
+       its column. */
+    protected int next(char type) {
+	if (column >= types.length || types[column] != type) {
+	    throw new IllegalStateException("Value does not match column " +
+					    column);
+	}
+	return column++;
+    }
+
+    /* Write the contents of the specified buffer to the specified
+       channel and empty the buffer. */
+    protected static void drain(ByteBuffer b, FileChannel c) 
+	throws IOException {
+	b.flip();
+	while (b.hasRemaining()) {
+	    c.write(b);
+	}
+	b.clear();
+    }
+}
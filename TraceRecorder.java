@@ -0,0 +1,184 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/* This class records the progress of every customer through a queue in
+   a compact binary trace so that a run can be analysed after it has
+   finished. The trace is written to a series of segment files named
+   prefix-00000.trace, prefix-00001.trace, and so on; a new segment is
+   begun whenever the current one reaches a maximum size. Each segment
+   starts with a header holding the queue parameters and the length of
+   the run (known only when the trace is closed, and therefore filled
+   in for the first segment alone), followed by
+   records of RECORD_SIZE bytes, each consisting of the event type, the
+   queue time of the event, and either the service length (for an
+   arrival) or the arrival time of the customer (for the start of
+   service and a departure). All values are big-endian. The records are
+   gathered in a direct buffer and written to the file channel a block
+   at a time, so that recording an event normally costs no more than
+   storing its values.
+
+   As the listener methods cannot throw I/O exceptions, the first
+   exception that occurs stops the recording; it is thrown again by
+   close(). */
+class TraceRecorder implements QueueListener, Closeable {
+    public static final int MAGIC = 0x4d515452; // "MQTR"
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 49;
+    public static final int RECORD_SIZE = 17;
+    public static final byte ARRIVAL = 0, SERVICE = 1, DEPARTURE = 2;
+
+    protected static final long SEGMENT_SIZE = 64L << 20;
+    protected static final int BUFFER_SIZE = 64 << 10;
+
+    protected String prefix;        // common prefix of segment file names
+    protected long segmentSize;     // maximum number of bytes per segment
+    protected SimulationSettings settings; // parameters of the queue
+
+    protected ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    protected FileChannel channel;  // current segment
+    protected int segment = -1;     // number of the current segment
+    protected long written = 0;     // bytes written to the current segment
+    protected long count = 0;       // number of events recorded
+    protected IOException error;    // first exception that occurred
+    protected double endTime = 0;   // length of the run, if known
+
+    /* Construct a recorder that writes segments of up to 64 MiB. */
+    TraceRecorder(String p, SimulationSettings s) throws IOException {
+	this(p, s, SEGMENT_SIZE);
+    }
+
+    /* Construct a recorder that writes segments of up to the specified
+       number of bytes, and open the first segment. */
+    TraceRecorder(String p, SimulationSettings s, long size) 
+	throws IOException {
+	prefix = p;
+	settings = s.copy();
+	segmentSize = Math.max(size, HEADER_SIZE + RECORD_SIZE);
+	nextSegment();
+    }
+
+    /* Return the name of the specified segment of the trace with the
+       specified prefix. */
+    public static String segmentName(String prefix, int n) {
+	return prefix + "-" + String.format("%05d", n) + ".trace";
+    }
+
+    /* Return the number of events recorded. */
+    public long getCount() { return count; }
+
+    /* Return the number of segments written so far. */
+    public int getSegmentCount() { return segment + 1; }
+
+    /* Set the length of the recorded run, i.e., the queue time at which
+       it stopped, so that a replay covers any final steps in which
+       nothing happened. It is written when the trace is closed. */
+    public void setEndTime(double t) { endTime = t; }
+
+    public void arrived(double t, double service) {
+	write(ARRIVAL, t, service);
+    }
+
+    public void serviceStarted(double t, double arrival) {
+	write(SERVICE, t, arrival);
+    }
+
+    public void departed(double t, double arrival) {
+	write(DEPARTURE, t, arrival);
+    }
+
+    /* Append a record to the trace. */
+    protected void write(byte type, double t, double v) {
+	if (error != null) {
+	    return;
+	}
+	try {
+	    if (written + RECORD_SIZE > segmentSize) {
+		nextSegment();
+	    } else if (buffer.remaining() < RECORD_SIZE) {
+		drain();
+	    }
+	    buffer.put(type);
+	    buffer.putDouble(t);
+	    buffer.putDouble(v);
+	    written += RECORD_SIZE;
+	    count++;
+	} catch (IOException e) {
+	    error = e;
+	}
+    }
+
+    /* Write the buffered records to the current segment. */
+    protected void drain() throws IOException {
+	buffer.flip();
+	while (buffer.hasRemaining()) {
+	    channel.write(buffer);
+	}
+	buffer.clear();
+    }
+
+    /* Close the current segment, if any, and begin the next one. */
+    protected void nextSegment() throws IOException {
+	if (channel != null) {
+	    drain();
+	    channel.close();
+	}
+	segment++;
+	channel = new FileOutputStream(segmentName(prefix, segment))
+	    .getChannel();
+	buffer.putInt(MAGIC);
+	buffer.putInt(VERSION);
+	buffer.putInt(segment);
+	buffer.putInt(settings.getServers());
+	buffer.putDouble(settings.getTick());
+	buffer.putDouble(settings.getLambda());
+	buffer.putDouble(settings.getMu());
+	buffer.put((byte) (settings.getEvent() ? 1 : 0));
+	buffer.putDouble(0);
+	written = HEADER_SIZE;
+    }
+
+    /* Write the buffered records to disk without closing the trace. */
+    public void flush() throws IOException {
+	if (error == null && channel != null) {
+	    try {
+		drain();
+	    } catch (IOException e) {
+		error = e;
+	    }
+	}
+	if (error != null) {
+	    throw error;
+	}
+    }
+
+    /* Write the buffered records and the length of the run, and close
+       the trace. Throws the first exception that occurred while
+       recording, if any. */
+    public void close() throws IOException {
+	try {
+	    flush();
+	} finally {
+	    if (channel != null) {
+		channel.close();
+		channel = null;
+	    }
+	}
+	writeEndTime();
+    }
+
+    /* Fill in the length of the run in the header of the first
+       segment. */
+    protected void writeEndTime() throws IOException {
+	ByteBuffer b = ByteBuffer.allocate(8);
+	RandomAccessFile f = new RandomAccessFile(segmentName(prefix, 0), 
+						  "rw");
+
+	try {
+	    b.putDouble(endTime).flip();
+	    f.getChannel().write(b, HEADER_SIZE - 8);
+	} finally {
+	    f.close();
+	}
+    }
+}
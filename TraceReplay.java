@@ -0,0 +1,322 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/* This class replays a trace written by a TraceRecorder as a sequence of
+   simulation steps, without running the queue again. The steps are
+   intervals of the length of the tick recorded in the trace, and their
+   outcomes are reconstructed from the events recorded in them: the
+   state after a step is the number of arrivals minus the number of
+   departures up to its end. Each event is assigned to a step by its
+   time: under the fixed-tick engine every event takes place at the end
+   of a step, at a time built up by adding the tick once per step, so
+   the nearest multiple of the tick is taken, which tolerates any
+   rounding error that accumulates over a long run; under the
+   next-event engine, the first multiple of the tick that is not
+   earlier than the event is taken. The replay ends at the length of
+   the run recorded in the trace, so that final steps in which nothing
+   happened are replayed as well. As the events are recorded in order of
+   time, a sparse index holding the position and queue state at every
+   INDEX_INTERVAL-th event is built when the trace is opened; seeking to
+   any time then takes a binary search of the index followed by a scan
+   of at most INDEX_INTERVAL events. */
+class TraceReplay {
+    protected static final int INDEX_INTERVAL = 1024;
+    protected static final int BUFFER_SIZE = 64 << 10;
+
+    protected String prefix;        // common prefix of segment file names
+    protected SimulationSettings settings; // parameters of the queue
+    protected double tick;
+    protected boolean nearest;      // events lie on step boundaries
+    protected long steps;           // number of steps in the run
+
+    /* segmentStarts[i] is the number of the first event in segment i;
+       the last element is the total number of events. */
+    protected long[] segmentStarts;
+
+    /* Sparse index of the events. */
+    protected double[] indexTimes = new double[16];
+    protected long[] indexEvents = new long[16];
+    protected int[] indexStates = new int[16];
+    protected int indexSize = 0;
+
+    /* Position of the replay. The next event to be read is held in the
+       next* fields, and its number is event - 1. */
+    protected FileChannel channel;  // segment containing the next event
+    protected int segment = -1;     // number of the current segment
+    protected ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    protected long event = 0;       // number of the next event to be read
+    protected boolean hasNext;
+    protected byte nextType;
+    protected double nextTime, nextValue;
+    protected long step = 0;        // number of steps replayed
+    protected int state = 0;        // state at the end of the last step
+
+    /* Open the trace with the specified prefix and index it. */
+    TraceReplay(String p) throws IOException {
+	int n;
+
+	prefix = p;
+	for (n = 0; new File(TraceRecorder.segmentName(p, n)).exists(); n++)
+	    ;
+	if (n == 0) {
+	    throw new FileNotFoundException(TraceRecorder.segmentName(p, 0));
+	}
+	segmentStarts = new long[n + 1];
+	for (n = 0; n < segmentStarts.length - 1; n++) {
+	    File f = new File(TraceRecorder.segmentName(p, n));
+
+	    segmentStarts[n + 1] = segmentStarts[n] + 
+		(f.length() - TraceRecorder.HEADER_SIZE) / 
+		TraceRecorder.RECORD_SIZE;
+	}
+	buildIndex();
+	if (steps == 0 && indexSize > 0) {
+	    steps = stepOf(indexTimes[indexSize - 1]);
+	}
+	seek(0);
+    }
+
+    /* Return the parameters of the queue that was recorded. */
+    public SimulationSettings getSettings() { return settings.copy(); }
+
+    /* Return the total number of events in the trace. */
+    public long getEventCount() { 
+	return segmentStarts[segmentStarts.length - 1]; 
+    }
+
+    /* Return the time at the end of the recorded run or, if its length
+       was not recorded, of the step containing the last event. */
+    public double getEndTime() { return steps * tick; }
+
+    /* Return the time at the end of the last step replayed. */
+    public double getTime() { return step * tick; }
+
+    /* Return the state at the end of the last step replayed. */
+    public int getState() { return state; }
+
+    /* Return true if steps remain to be replayed. */
+    public boolean hasNext() { return hasNext || step < steps; }
+
+    /* Read every event once, noting the position and queue state at
+       regular intervals, and the time of the last event. The queue
+       parameters are taken from the header of the first segment. */
+    private void buildIndex() throws IOException {
+	int s = 0;
+
+	open(0);
+	while (read()) {
+	    if ((event - 1) % INDEX_INTERVAL == 0) {
+		addIndex(nextTime, event - 1, s);
+	    }
+	    s += change(nextType);
+	}
+
+	/* The last entry marks the end of the trace. */
+	if (indexSize > 0) {
+	    addIndex(nextTime, event, s);
+	}
+    }
+
+    /* Add an entry to the index. */
+    private void addIndex(double t, long e, int s) {
+	if (indexSize == indexTimes.length) {
+	    double[] it = new double[2*indexSize];
+	    long[] ie = new long[2*indexSize];
+	    int[] is = new int[2*indexSize];
+
+	    System.arraycopy(indexTimes, 0, it, 0, indexSize);
+	    System.arraycopy(indexEvents, 0, ie, 0, indexSize);
+	    System.arraycopy(indexStates, 0, is, 0, indexSize);
+	    indexTimes = it;
+	    indexEvents = ie;
+	    indexStates = is;
+	}
+	indexTimes[indexSize] = t;
+	indexEvents[indexSize] = e;
+	indexStates[indexSize] = s;
+	indexSize++;
+    }
+
+    /* Return the change in the queue state caused by an event. */
+    private static int change(byte type) {
+	if (type == TraceRecorder.ARRIVAL) {
+	    return 1;
+	} else if (type == TraceRecorder.DEPARTURE) {
+	    return -1;
+	}
+	return 0;
+    }
+
+    /* Return the number of the step in which an event at the specified
+       time takes place. */
+    private long stepOf(double t) {
+	return nearest ? Math.round(t / tick) : (long) Math.ceil(t / tick);
+    }
+
+    /* Return the number of steps that end no later than the specified
+       time. */
+    private long stepsBefore(double t) {
+	return t > 0 ? (long) Math.floor(t / tick + 1e-6) : 0;
+    }
+
+    /* Position the replay at the end of the last step that ends no later
+       than the specified time. */
+    public void seek(double t) throws IOException {
+	int lo = 0, hi = indexSize - 1, mid;
+
+	step = Math.min(stepsBefore(t), steps);
+
+	/* Find the last index entry at or before the end of the step. */
+	while (lo < hi) {
+	    mid = (lo + hi + 1) >>> 1;
+	    if (stepOf(indexTimes[mid]) <= step) {
+		lo = mid;
+	    } else {
+		hi = mid - 1;
+	    }
+	}
+	if (indexSize == 0 || stepOf(indexTimes[0]) > step) {
+	    position(0);
+	    state = 0;
+	} else {
+	    position(indexEvents[lo]);
+	    state = indexStates[lo];
+	}
+
+	/* Scan forward to the end of the step. */
+	while (hasNext && stepOf(nextTime) <= step) {
+	    state += change(nextType);
+	    read();
+	}
+    }
+
+    /* Replay the next step and add its outcome to the specified batch.
+       Returns false, adding nothing, if no steps remain. */
+    public boolean next(StepBatch b) throws IOException {
+	int a = 0, d = 0;
+
+	if (!hasNext()) {
+	    return false;
+	}
+	step++;
+	while (hasNext && stepOf(nextTime) <= step) {
+	    if (nextType == TraceRecorder.ARRIVAL) {
+		a++;
+		b.addService(nextValue);
+	    } else if (nextType == TraceRecorder.DEPARTURE) {
+		d++;
+	    }
+	    read();
+	}
+	state += a - d;
+	b.add(step * tick, state, a, d);
+	return true;
+    }
+
+    /* Replay steps into the specified batch until it is full or the
+       next step would end after the specified time. Returns the number
+       of steps added. */
+    public int fill(StepBatch b, double t) throws IOException {
+	int n = 0;
+
+	while (!b.isFull() && step < stepsBefore(t) && next(b)) {
+	    n++;
+	}
+	return n;
+    }
+
+    /* Close the trace. */
+    public void close() throws IOException {
+	if (channel != null) {
+	    channel.close();
+	    channel = null;
+	}
+	hasNext = false;
+    }
+
+    /* Position the replay so that the next event read is the specified
+       one, and read it. */
+    private void position(long e) throws IOException {
+	int lo = 0, hi = segmentStarts.length - 2, mid;
+
+	while (lo < hi) {
+	    mid = (lo + hi + 1) >>> 1;
+	    if (segmentStarts[mid] <= e) {
+		lo = mid;
+	    } else {
+		hi = mid - 1;
+	    }
+	}
+	if (lo != segment) {
+	    open(lo);
+	}
+	channel.position(TraceRecorder.HEADER_SIZE + 
+			 (e - segmentStarts[lo]) * TraceRecorder.RECORD_SIZE);
+	buffer.clear().flip();
+	event = e;
+	read();
+    }
+
+    /* Open the specified segment, check its header, and position it at
+       its first event. */
+    private void open(int n) throws IOException {
+	ByteBuffer h = ByteBuffer.allocate(TraceRecorder.HEADER_SIZE);
+	SimulationSettings s;
+
+	if (channel != null) {
+	    channel.close();
+	}
+	channel = new FileInputStream(TraceRecorder.segmentName(prefix, n))
+	    .getChannel();
+	segment = n;
+	while (h.hasRemaining() && channel.read(h) >= 0)
+	    ;
+	h.flip();
+	if (h.remaining() < TraceRecorder.HEADER_SIZE 
+	    || h.getInt() != TraceRecorder.MAGIC 
+	    || h.getInt() != TraceRecorder.VERSION
+	    || h.getInt() != n) {
+	    throw new IOException("Invalid trace segment " + 
+				  TraceRecorder.segmentName(prefix, n));
+	}
+	s = new SimulationSettings(h.getInt(), h.getDouble(), h.getDouble(), 
+				   h.getDouble(), h.get() != 0);
+	if (settings == null) {
+	    settings = s;
+	    tick = s.getTick();
+	    nearest = !s.getEvent();
+	    steps = stepOf(h.getDouble());
+	}
+	buffer.clear().flip();
+	event = segmentStarts[n];
+    }
+
+    /* Read the next event into the next* fields, moving on to the next
+       segment if necessary. Returns false if there are no more events. */
+    private boolean read() throws IOException {
+	if (event >= segmentStarts[segment + 1]) {
+	    if (segment + 2 >= segmentStarts.length) {
+		return hasNext = false;
+	    }
+	    open(segment + 1);
+	}
+	if (buffer.remaining() < TraceRecorder.RECORD_SIZE) {
+	    buffer.compact();
+	    while (buffer.position() < TraceRecorder.RECORD_SIZE 
+		   && channel.read(buffer) > 0)
+		;
+	    buffer.flip();
+	    if (buffer.remaining() < TraceRecorder.RECORD_SIZE) {
+		throw new EOFException("Truncated trace segment " + 
+				       TraceRecorder.segmentName(prefix, 
+								 segment));
+	    }
+	}
+	nextType = buffer.get();
+	nextTime = buffer.getDouble();
+	nextValue = buffer.getDouble();
+	event++;
+	return hasNext = true;
+    }
+}
@@ -0,0 +1,503 @@
+import java.util.concurrent.*;
+
+/* This class computes the exact transient distribution of the number of
+   customers in the M/M/s and M/M/infinity queues simulated by
+   MarkovQueue by uniformization (Jensen's method). The birth-death
+   generator Q is turned into the transition matrix P = I + Q/L of a
+   discrete chain whose jumps occur at the times of a Poisson process of
+   rate L, which is at least the largest total rate of leaving any
+   state; the distribution after time t is then the Poisson(L*t)
+   weighted sum of the distributions after 0, 1, 2, ... jumps of the
+   discrete chain. As P is tridiagonal, each jump is computed directly
+   from the birth and death rates without storing a matrix. The sum is
+   truncated once the remaining Poisson weight falls below a fraction
+   of the specified epsilon, or as soon as the remaining jumps can no
+   longer change the result; the state space is truncated where the
+   number of arrivals within t is unlikely to reach, and the states of
+   negligible probability at either end are skipped. Products over very
+   large state spaces are split across the processors. The time
+   integral of the distribution, i.e., the expected time spent in each
+   state, is accumulated along the way. Once the distribution has
+   reached the steady state given by QueueTheory, advancing it only
+   accumulates time. */
+class TransientSolver {
+    protected static final int PARALLEL_STATES = 1 << 14; // per task
+    protected static final int STEADY_CHECK = 64; // jumps between checks
+
+    protected int servers;      // number of servers (< 1 if infinite)
+    protected double lambda;    // customer arrival parameter
+    protected double mu;        // service time parameter
+    protected double epsilon;   // probability mass that may be lost per
+				// interval advanced
+    protected ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    protected double[] p = new double[16];         // current distribution
+    protected double[] integral = new double[16];  // time in each state
+    protected int states = 1;   // states that may have positive probability
+    protected int reached = 1;  // states that have ever been reached
+    protected int initial = 0;  // state at time 0
+    protected double time = 0;
+    protected boolean stationary = false; // the distribution has converged
+    protected double[] steady = null;     // steady state, if there is one
+    protected double[] below = null;      // steady mass below each state
+
+    /* Vectors of the discrete chain used while advancing. */
+    protected double[] v = new double[16], next = new double[16];
+    protected double rate;      // uniformization rate L
+    protected int last;         // last state of the truncated chain
+    protected int bottom = 0;   // v is zero outside these states,
+    protected int top = 0;
+    protected int spareBottom = 0; // and next outside these
+    protected int spareTop = 0;
+    protected double weight;    // weight of the current jump in the sum
+    protected double coefficient; // and in the time integral
+    protected boolean measure;  // the current jump measures its change
+    protected double[] stay = new double[16]; // probability of each state
+    protected double[] down = new double[16]; // being kept and left down
+
+    /* Construct a solver for a queue with the specified parameters that
+       is empty at time 0. If the servers value is not a positive
+       integer, an infinite number of servers is assumed, as in
+       MarkovQueue. */
+    TransientSolver(int s, double l, double m, double e) {
+	int k;
+
+	servers = s;
+	lambda = l;
+	mu = m;
+	epsilon = e;
+	p[0] = 1;
+	steady = steadyState(new QueueTheory(s, l, m), e / 4);
+	if (steady != null) {
+	    below = new double[steady.length + 1];
+	    for (k = 0; k < steady.length; k++) {
+		below[k + 1] = below[k] + steady[k];
+	    }
+	}
+    }
+
+    /* Use the specified pool for large state spaces. */
+    public void setPool(ForkJoinPool f) { pool = f; }
+
+    /* Restart the solver at time 0 with the specified number of
+       customers in the queue. */
+    public void setState(int k) {
+	p = new double[k + 16];
+	integral = new double[k + 16];
+	p[k] = 1;
+	states = reached = k + 1;
+	initial = k;
+	time = 0;
+	stationary = false;
+    }
+
+    public double getTime() { return time; }
+    public int getInitialState() { return initial; }
+
+    /* Return the number of states, counted from 0, beyond which the
+       probability has always been negligible. */
+    public int getStateCount() { return reached; }
+
+    /* Return true if the distribution has converged to the steady
+       state, so that advancing it only accumulates time. */
+    public boolean isStationary() { return stationary; }
+
+    /* Return the probability that the queue holds k customers. */
+    public double getProbability(int k) {
+	return k >= 0 && k < states ? p[k] : 0;
+    }
+
+    /* Return the expected time spent with k customers in the queue
+       since time 0. */
+    public double getTimeIntegral(int k) {
+	return k >= 0 && k < reached ? integral[k] : 0;
+    }
+
+    /* Return the probability mass lost by truncation so far. */
+    public double getError() {
+	double s = 0;
+	int k;
+
+	for (k = 0; k < states; k++) {
+	    s += p[k];
+	}
+	return Math.max(1 - s, 0);
+    }
+
+    /* Return the expected number of customers in the queue. */
+    public double getMeanState() {
+	double s = 0;
+	int k;
+
+	for (k = 1; k < states; k++) {
+	    s += k * p[k];
+	}
+	return s;
+    }
+
+    /* Return the expected number of customers in the queue averaged
+       over the time since time 0. */
+    public double getMeanTimeAverage() {
+	double s = 0;
+	int k;
+
+	if (time <= 0) {
+	    return initial;
+	}
+	for (k = 1; k < reached; k++) {
+	    s += k * integral[k];
+	}
+	return s / time;
+    }
+
+    /* Return a rough estimate of the number of state updates needed to
+       advance the distribution by the specified amount of time. */
+    public double getCost(double dt) {
+	double n = states + lambda * dt;
+
+	if (stationary) {
+	    return states;
+	}
+	return n * ((lambda + death((int) Math.min(n, 1e9))) * dt + 1);
+    }
+
+    /* Return the rate at which customers leave the queue with k
+       customers in it. */
+    protected double death(int k) {
+	return mu * (servers < 1 || k < servers ? k : servers);
+    }
+
+    /* Advance the distribution by the specified amount of time. */
+    public void advance(double dt) {
+	double q, cumulative = 0, total = 0, diff = 0;
+	double tail = epsilon / 4, drop;
+	int n, k, jumps, highest;
+
+	if (!(dt > 0)) {
+	    return;
+	}
+
+	/* With infinitely many servers, the uniformization rate grows with
+	   the number of states that the customers arriving within dt may
+	   reach, so long intervals are split in halves. */
+	if (servers < 1 && !stationary && lambda * dt > 2 * states + 16) {
+	    advance(dt / 2);
+	    advance(dt / 2);
+	    return;
+	}
+	time += dt;
+	if (stationary) {
+	    for (k = 0; k < states; k++) {
+		integral[k] += p[k] * dt;
+	    }
+	    return;
+	}
+
+	/* Truncate the chain where the number of arrivals within dt is
+	   unlikely to reach, and uniformize it at its largest rate. */
+	last = states - 1 + arrivalBound(lambda * dt, tail);
+	rate = lambda + death(last);
+	q = rate * dt;
+	jumps = arrivalBound(q, tail);
+	drop = tail / (jumps + 1);
+	ensureCapacity(last + 2);
+	probabilities();
+	java.util.Arrays.fill(v, bottom, Math.min(top + 1, v.length), 0);
+	System.arraycopy(p, 0, v, 0, states);
+	java.util.Arrays.fill(p, 0, states, 0);
+	bottom = 0;
+	top = highest = states - 1;
+
+	/* Accumulate the Poisson-weighted sum of the distributions after
+	   n jumps. The time spent in a state while it is reached by the
+	   n-th jump is P(Poisson(q) > n)/L. */
+	for (n = 0; ; n++) {
+	    weight = QueueTheory.poissonProbability(q, n);
+	    cumulative += weight;
+	    coefficient = Math.max(1 - cumulative, 0) / rate;
+	    total += coefficient;
+	    measure = n % STEADY_CHECK == STEADY_CHECK - 1;
+	    diff = step(n > 0, drop);
+	    highest = Math.max(highest, top);
+
+	    /* Once the remaining weight is negligible, or the remaining
+	       jumps cannot change the distribution since the changes
+	       made by successive jumps never grow, or the discrete chain
+	       has reached the steady state, which it then keeps, the rest
+	       of the weight goes to the last distribution. The last two
+	       are only checked every STEADY_CHECK jumps. */
+	    if ((1 - cumulative <= tail && n >= q) ||
+		(measure && diff * (jumps - n) < tail) ||
+		(measure && distance(v, bottom, top + 1) < epsilon)) {
+		weight = Math.max(1 - cumulative, 0);
+		coefficient = Math.max(dt - total, 0);
+		add(bottom, top + 1);
+		break;
+	    }
+	}
+
+	/* Drop the negligible states at the upper end. */
+	diff = 0;
+	for (k = highest; k > 0 && diff + p[k] <= tail; k--) {
+	    diff += p[k];
+	    p[k] = 0;
+	}
+	states = k + 1;
+	reached = Math.max(reached, highest + 1);
+
+	/* Once the distribution is within epsilon of the steady state,
+	   apart from the probability that either has lost by truncation,
+	   it stays there. */
+	if (distance(p, 0, states) < 2 * epsilon) {
+	    ensureCapacity(steady.length + 2);
+	    java.util.Arrays.fill(p, 0, states, 0);
+	    System.arraycopy(steady, 0, p, 0, steady.length);
+	    states = steady.length;
+	    reached = Math.max(reached, states);
+	    stationary = true;
+	}
+    }
+
+    /* Return the L1 distance between the steady state and the specified
+       vector, which is zero outside the specified range of states, once
+       scaled to the same total probability; or infinity if there is no
+       steady state. Outside the range, the distance is the steady mass
+       there, so only the range itself is traversed. */
+    protected double distance(double[] x, int from, int to) {
+	double sum = 0, d;
+	int n, k;
+
+	if (steady == null) {
+	    return Double.POSITIVE_INFINITY;
+	}
+	n = steady.length;
+	for (k = from; k < to; k++) {
+	    sum += x[k];
+	}
+	d = below[Math.min(from, n)] + below[n] - below[Math.min(to, n)];
+	for (k = from; k < to; k++) {
+	    d += Math.abs(x[k] / sum - (k < n ? steady[k] : 0));
+	}
+	return d;
+    }
+
+    /* Return the steady-state probabilities of the states up to the
+       point where the remaining probability is below the specified
+       tail, or null if the queue has no steady state. */
+    protected static double[] steadyState(QueueTheory theory, double tail) {
+	double sum = 0;
+	double[] d = new double[16], x;
+	int k;
+
+	if (!theory.isStable()) {
+	    return null;
+	}
+	for (k = 0; 1 - sum > tail && k < Integer.MAX_VALUE / 2; k++) {
+	    if (k == d.length) {
+		x = new double[2 * k];
+		System.arraycopy(d, 0, x, 0, k);
+		d = x;
+	    }
+	    d[k] = theory.getProbability(k);
+	    sum += d[k];
+	    if (k > theory.getLoad() && d[k] == 0) {
+		break;
+	    }
+	}
+	x = new double[k];
+	System.arraycopy(d, 0, x, 0, k);
+	return x;
+    }
+
+    /* Apply one jump of the discrete chain to v if the flag is true, and
+       add the result to the distribution and the time integral with the
+       current weights. States at either end whose probabilities add up
+       to at most the specified amount are then dropped; besides saving
+       work, this keeps the vanishing probabilities far from the mean
+       from becoming subnormal numbers, which are very slow to compute
+       with. Returns the L1 norm of the change in v if the current jump
+       measures it, or infinity otherwise. */
+    protected double step(boolean jump, double drop) {
+	int from = Math.max(bottom - 1, 0), to = Math.min(top + 1, last) + 1;
+	double diff, sum;
+	double[] x;
+
+	if (!jump) {
+	    add(bottom, top + 1);
+	    return 0;
+	}
+	if (to - from < 2 * PARALLEL_STATES) {
+	    diff = product(from, to);
+	} else {
+	    StepTask t = new StepTask(from, to);
+
+	    pool.invoke(t);
+	    diff = t.diff;
+	}
+
+	/* Clear what is left of the previous vector in the next one, so
+	   that both are zero outside their ranges of states. */
+	if (spareBottom < from) {
+	    java.util.Arrays.fill(next, spareBottom, from, 0);
+	}
+	if (spareTop >= to) {
+	    java.util.Arrays.fill(next, to, spareTop + 1, 0);
+	}
+	x = v;
+	v = next;
+	next = x;
+	spareBottom = bottom;
+	spareTop = top;
+	bottom = from;
+	top = to - 1;
+
+	for (sum = 0; top > bottom && sum + v[top] <= drop; top--) {
+	    sum += v[top];
+	    v[top] = 0;
+	}
+	for (; bottom < top && sum + v[bottom] <= drop; bottom++) {
+	    sum += v[bottom];
+	    v[bottom] = 0;
+	}
+	return diff;
+    }
+
+    /* Compute the jump probabilities of the states of the truncated
+       chain, so that each jump needs neither divisions nor branches. */
+    protected void probabilities() {
+	double scale = 1 / rate, in = lambda * scale;
+	int k;
+
+	if (stay.length < last + 2) {
+	    stay = new double[v.length];
+	    down = new double[v.length];
+	}
+	for (k = 0; k <= last; k++) {
+	    down[k] = death(k) * scale;
+	    stay[k] = 1 - down[k] - (k < last ? in : 0);
+	}
+	down[last + 1] = 0;
+    }
+
+    /* Compute the states in the specified range of the next vector from
+       v by one jump of the discrete chain, add them to the distribution
+       and time integral with the current weights, and return the L1
+       norm of the change in them if the current jump measures it, or
+       infinity otherwise. The loops are kept simple enough for the
+       compiler to vectorize them. */
+    protected double product(int from, int to) {
+	double diff = 0, in = lambda / rate;
+	int k = from;
+
+	if (k == 0) {
+	    next[0] = v[0] * stay[0] + v[1] * down[1];
+	    k = 1;
+	}
+	for (; k < to; k++) {
+	    next[k] = v[k] * stay[k] + v[k + 1] * down[k + 1] + 
+		v[k - 1] * in;
+	}
+	for (k = from; k < to; k++) {
+	    p[k] += weight * next[k];
+	    integral[k] += coefficient * next[k];
+	}
+	if (!measure) {
+	    return Double.POSITIVE_INFINITY;
+	}
+	for (k = from; k < to; k++) {
+	    diff += Math.abs(next[k] - v[k]);
+	}
+	return diff;
+    }
+
+    /* Add v to the distribution and time integral in the specified range
+       of states with the current weights. */
+    protected void add(int from, int to) {
+	int k;
+
+	for (k = from; k < to; k++) {
+	    p[k] += weight * v[k];
+	    integral[k] += coefficient * v[k];
+	}
+    }
+
+    /* Return the smallest number of arrivals that a Poisson number with
+       the specified mean exceeds with probability at most the specified
+       tail. */
+    protected static int arrivalBound(double m, double tail) {
+	double sum = 0;
+	int k;
+
+	for (k = 0; 1 - sum > tail && k < Integer.MAX_VALUE / 2; k++) {
+	    sum += QueueTheory.poissonProbability(m, k);
+	    if (k > m && QueueTheory.poissonProbability(m, k) == 0) {
+		break;
+	    }
+	}
+	return k + 1;
+    }
+
+    /* Make the vectors able to hold the specified number of states. */
+    protected void ensureCapacity(int c) {
+	if (c > v.length) {
+	    v = new double[Math.max(c, 2 * v.length)];
+	    next = new double[v.length];
+	    bottom = top = spareBottom = spareTop = 0;
+	}
+	if (c > p.length) {
+	    double[] x = new double[Math.max(c, 2 * p.length)];
+	    double[] y = new double[x.length];
+
+	    System.arraycopy(p, 0, x, 0, p.length);
+	    System.arraycopy(integral, 0, y, 0, integral.length);
+	    p = x;
+	    integral = y;
+	}
+    }
+
+    /* Return the transient distribution of the number of customers at
+       time t in a queue with the specified parameters that holds k
+       customers at time 0. */
+    public static double[] distribution(int s, double l, double m, int k,
+					double t, double e) {
+	TransientSolver solver = new TransientSolver(s, l, m, e);
+	double[] d;
+	int i;
+
+	solver.setState(k);
+	solver.advance(t);
+	d = new double[solver.states];
+	for (i = 0; i < d.length; i++) {
+	    d[i] = solver.p[i];
+	}
+	return d;
+    }
+
+    /* This task applies one jump of the discrete chain to a range of
+       states, splitting the range in half until it is small enough to
+       be done sequentially. */
+    class StepTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	int from, to;
+	double diff;
+
+	StepTask(int f, int t) {
+	    from = f;
+	    to = t;
+	}
+
+	protected void compute() {
+	    if (to - from <= PARALLEL_STATES) {
+		diff = product(from, to);
+	    } else {
+		int mid = (from + to) >>> 1;
+		StepTask a = new StepTask(from, mid);
+		StepTask b = new StepTask(mid, to);
+
+		invokeAll(a, b);
+		diff = a.diff + b.diff;
+	    }
+	}
+    }
+}
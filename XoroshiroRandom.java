@@ -0,0 +1,85 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/* This class implements the xoroshiro128++ generator of Blackman and
+   Vigna ("Scrambled Linear Pseudorandom Number Generators," 2021). It has
+   a period of 2^128 - 1 and a jump function that advances the state by
+   2^64 draws, which is used to carve the period into non-overlapping
+   substreams. */
+class XoroshiroRandom implements RandomSource {
+    private static final long[] JUMP = {
+	0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L
+    };
+    private static final AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+    protected long s0, s1; // generator state
+
+    /* Construct a generator with an arbitrary seed. */
+    XoroshiroRandom() {
+	this(seeds.getAndAdd(0x9e3779b97f4a7c15L));
+    }
+
+    /* Construct a generator with the specified seed. The state is filled
+       with the output of a SplitMix64 generator started from the seed so
+       that similar seeds give unrelated streams. */
+    XoroshiroRandom(long seed) {
+	s0 = mix(seed += 0x9e3779b97f4a7c15L);
+	s1 = mix(seed + 0x9e3779b97f4a7c15L);
+	if ((s0 | s1) == 0) {
+	    s1 = 1;
+	}
+    }
+
+    /* Construct a generator with the specified state. */
+    private XoroshiroRandom(long a, long b) {
+	s0 = a;
+	s1 = b;
+    }
+
+    public long nextLong() {
+	long a = s0, b = s1;
+	long result = Long.rotateLeft(a + b, 17) + a;
+
+	b ^= a;
+	s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+	s1 = Long.rotateLeft(b, 28);
+	return result;
+    }
+
+    public double nextDouble() {
+	return (nextLong() >>> 11) * 0x1p-53;
+    }
+
+    /* Return a generator that continues this one's stream, and advance
+       this one by 2^64 draws so that the two do not overlap. */
+    public RandomSource split() {
+	XoroshiroRandom r = new XoroshiroRandom(s0, s1);
+
+	jump();
+	return r;
+    }
+
+    /* Advance the generator by 2^64 draws. */
+    public void jump() {
+	long a = 0, b = 0;
+	int i, j;
+
+	for (i = 0; i < JUMP.length; i++) {
+	    for (j = 0; j < 64; j++) {
+		if ((JUMP[i] & (1L << j)) != 0) {
+		    a ^= s0;
+		    b ^= s1;
+		}
+		nextLong();
+	    }
+	}
+	s0 = a;
+	s1 = b;
+    }
+
+    /* The SplitMix64 output function. */
+    private static long mix(long z) {
+	z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+	z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+	return z ^ (z >>> 31);
+    }
+}
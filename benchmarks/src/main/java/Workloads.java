@@ -0,0 +1,282 @@
+import java.util.function.*;
+
+/* This class sets up the simulator operations measured by the
+   benchmarks. The simulator classes are in the default package, which
+   JMH does not allow benchmark classes to be in and which classes in
+   other packages cannot import, so the benchmarks obtain these
+   operations once per trial through reflection and then call them
+   through the standard functional interfaces. */
+public class Workloads {
+
+    /* Return an operation that advances a queue with the specified
+       parameters by one step and returns its state. The queue is run for
+       the specified number of steps first so that it is measured close
+       to its steady state rather than while it fills up. */
+    public static IntSupplier queueStep(int servers, double tick, 
+					double lambda, double mu, 
+					boolean event, long warmup, 
+					long seed) {
+	final MarkovQueue q;
+	long i;
+
+	if (event) {
+	    q = new EventMarkovQueue(servers, tick, lambda, mu, 
+				     new XoroshiroRandom(seed));
+	} else {
+	    q = new MarkovQueue(servers, tick, lambda, mu, 
+				new XoroshiroRandom(seed));
+	}
+	for (i = 0; i < warmup; i++) {
+	    q.simulateStep();
+	}
+	return new IntSupplier() {
+	    public int getAsInt() {
+		q.simulateStep();
+		return q.getState();
+	    }
+	};
+    }
+
+    /* Return an operation that processes one event of a ring network of
+       the specified number of single-server stations, each routing to
+       the next four, and returns the number of events processed. The
+       network is run for the specified number of events first. */
+    public static LongSupplier networkEvent(int stations, double rho,
+					    long warmup, long seed) {
+	final QueueNetwork n = QueueNetwork.createRing(stations, 4, 0.1, 
+						       rho, 
+						       new XoroshiroRandom(seed));
+
+	n.simulate(warmup, Double.POSITIVE_INFINITY);
+	return new LongSupplier() {
+	    public long getAsLong() {
+		n.simulateEvent();
+		return n.getEventCount();
+	    }
+	};
+    }
+
+    /* Return an operation that advances the specified number of
+       identical queues by one step, as separate MarkovQueue objects
+       ("queue"), as separate BirthDeathQueue objects ("birthdeath") or
+       as the lanes of a single QueueBatch ("batch"), and returns the
+       state of the first queue. The queues are run for the specified
+       number of steps first. */
+    public static LongSupplier queuesStep(int count, int servers, 
+					  double tick, double lambda, 
+					  double mu, String engine, 
+					  long warmup, long seed) {
+	SimulationSettings s = new SimulationSettings(servers, tick, lambda, 
+						      mu, false);
+	RandomSource r = new XoroshiroRandom(seed);
+	long i;
+	int j;
+
+	if (engine.equals("birthdeath")) {
+	    s.setAggregate(true);
+	} else if (engine.equals("batch")) {
+	    final QueueBatch b = new QueueBatch(count, s, r);
+
+	    b.run(warmup);
+	    return new LongSupplier() {
+		public long getAsLong() {
+		    b.step();
+		    return b.getState(0);
+		}
+	    };
+	}
+
+	final MarkovQueue[] q = new MarkovQueue[count];
+	for (j = 0; j < count; j++) {
+	    q[j] = s.createQueue(r);
+	    for (i = 0; i < warmup; i++) {
+		q[j].simulateStep();
+	    }
+	}
+	return new LongSupplier() {
+	    public long getAsLong() {
+		int k;
+
+		for (k = 0; k < q.length; k++) {
+		    q[k].simulateStep();
+		}
+		return q[0].getState();
+	    }
+	};
+    }
+
+    /* Return an operation that computes the transient distribution of
+       an initially empty queue with the specified parameters at the
+       specified time, and returns its mean. */
+    public static DoubleSupplier transientMean(final int servers, 
+					       final double lambda, 
+					       final double mu, 
+					       final double time) {
+	return new DoubleSupplier() {
+	    public double getAsDouble() {
+		TransientSolver s = new TransientSolver(servers, lambda, mu, 
+							1e-9);
+
+		s.advance(time);
+		return s.getMeanState();
+	    }
+	};
+    }
+
+    /* Return an operation that calls genPoisson() on a queue whose own
+       arrival parameters give the specified mean. */
+    public static IntSupplier genPoisson(final double mean, long seed) {
+	final MarkovQueue q = new MarkovQueue(1, 1, mean, 1, 
+					      new XoroshiroRandom(seed));
+	return new IntSupplier() {
+	    public int getAsInt() {
+		return q.genPoisson(mean, 1);
+	    }
+	};
+    }
+
+    /* Return an operation that calls genExponential() on a queue. */
+    public static DoubleSupplier genExponential(final double rate, 
+						long seed) {
+	final MarkovQueue q = new MarkovQueue(1, 1, 1, rate, 
+					      new XoroshiroRandom(seed));
+	return new DoubleSupplier() {
+	    public double getAsDouble() {
+		return q.genExponential(rate);
+	    }
+	};
+    }
+
+    /* Return an operation that simulates a step of a queue whose events
+       are recorded in a trace with the specified prefix, together with
+       the recorder, which must be closed when the operation is no
+       longer needed. */
+    public static Object[] tracedQueueStep(int servers, double tick, 
+					   double lambda, double mu, 
+					   boolean event, long warmup, 
+					   long seed, String prefix) 
+	throws java.io.IOException {
+	SimulationSettings s = new SimulationSettings(servers, tick, lambda, 
+						      mu, event);
+	final MarkovQueue q = s.createQueue(new XoroshiroRandom(seed));
+	final TraceRecorder t = new TraceRecorder(prefix, s);
+	long i;
+
+	for (i = 0; i < warmup; i++) {
+	    q.simulateStep();
+	}
+	q.addListener(t);
+	return new Object[] {
+	    new IntSupplier() {
+		public int getAsInt() {
+		    q.simulateStep();
+		    return q.getState();
+		}
+	    }, 
+	    t
+	};
+    }
+
+    /* Return an operation that appends successive points to a full
+       queue state dataset of the specified size. */
+    public static BooleanSupplier stateDatasetAdd(int size) {
+	final QueueStateDataset d = new QueueStateDataset(size);
+	int i;
+
+	for (i = 0; i < size; i++) {
+	    d.add(i, i % 16);
+	}
+	return new BooleanSupplier() {
+	    int n = 0;
+
+	    public boolean getAsBoolean() {
+		n++;
+		return d.add(n, n % 16);
+	    }
+	};
+    }
+
+    /* Return an operation that adds bars to a histogram dataset with the
+       specified window, cycling through the specified number of
+       categories the way the applet records visited states. */
+    public static BooleanSupplier histDatasetAdd(int window, 
+						 final int categories) {
+	final HistDataset d = new HistDataset(window);
+
+	return new BooleanSupplier() {
+	    int n = 0;
+
+	    public boolean getAsBoolean() {
+		n++;
+		return d.add(n % categories, n);
+	    }
+	};
+    }
+
+    /* Return an operation that appends a point to a decimating state
+       dataset holding the specified number of points and then reads the
+       entire view of it, as drawing the chart would. */
+    public static BooleanSupplier decimatedDatasetDraw(int columns, 
+						       int size) {
+	final DecimatedStateDataset d = new DecimatedStateDataset(columns);
+	int i;
+
+	for (i = 0; i < size; i++) {
+	    d.add(i, i % 16);
+	}
+	return new BooleanSupplier() {
+	    int n = d.size();
+
+	    public boolean getAsBoolean() {
+		int k, c, sum = 0;
+
+		n++;
+		d.add(n, n % 16);
+		c = d.getItemCount(0);
+		for (k = 0; k < c; k++) {
+		    d.getXValue(0, k);
+		    sum += d.getYValue(0, k).intValue();
+		}
+		return sum > 0;
+	    }
+	};
+    }
+
+    /* Return an operation that records exponentially distributed service
+       lengths in a real-valued histogram dataset. */
+    public static BooleanSupplier realHistDatasetAdd(int window, long seed) {
+	final RealHistDataset d = new RealHistDataset(window);
+	final RandomSource r = new XoroshiroRandom(seed);
+
+	return new BooleanSupplier() {
+	    public boolean getAsBoolean() {
+		return d.record(ExponentialSampler.standard(r));
+	    }
+	};
+    }
+
+    /* Return an operation that records exponentially distributed values
+       in a histogram with the specified number of bins per power of two
+       (logarithmic bins) or, if the number is 0, with bins of width
+       0.5. The values are drawn in advance so that only the cost of
+       recording them is measured. */
+    public static BooleanSupplier histogramRecord(int bins, long seed) {
+	final Histogram h = bins > 0 
+	    ? new Histogram(Integer.numberOfTrailingZeros(bins), 1.0/64)
+	    : new Histogram();
+	final double[] x = new double[4096];
+	RandomSource r = new XoroshiroRandom(seed);
+	int i;
+
+	for (i = 0; i < x.length; i++) {
+	    x[i] = ExponentialSampler.standard(r);
+	}
+	return new BooleanSupplier() {
+	    int n = 0;
+
+	    public boolean getAsBoolean() {
+		return h.record(x[n++ & (x.length - 1)]) >= 0;
+	    }
+	};
+    }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/* Measures the cost of advancing many identical queues by one step,
+   as separate MarkovQueue or BirthDeathQueue objects or in lockstep as
+   the lanes of a QueueBatch. Each operation is count queue-steps. A servers value
+   of 0 means infinitely many servers; rho is the load per server, or
+   the mean number of customers in that case. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+
+    @Param({"1024"})
+    public int count;
+
+    @Param({"1", "8", "0"})
+    public int servers;
+
+    @Param({"0.9"})
+    public double rho;
+
+    @Param({"queue", "birthdeath", "batch"})
+    public String engine;
+
+    @Param({"0.1"})
+    public double tick;
+
+    private LongSupplier step;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+	double lambda = servers < 1 ? rho : rho * servers;
+
+	step = (LongSupplier) Targets.create("queuesStep", count, servers, 
+					     tick, lambda, 1.0, engine, 
+					     1000L, 42L);
+    }
+
+    @Benchmark
+    public long step() {
+	return step.getAsLong();
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/* Measures the cost of adding an entry to each of the chart datasets.
+   No chart is attached, so the change notifications reach no
+   listeners and only the cost of the datasets themselves is measured. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DatasetBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private BooleanSupplier stateAdd, histAdd, realHistAdd;
+    private BooleanSupplier fixedRecord, logRecord, decimatedDraw;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+	stateAdd = (BooleanSupplier) Targets.create("stateDatasetAdd", size);
+	histAdd = (BooleanSupplier) Targets.create("histDatasetAdd", 15, size);
+	realHistAdd = (BooleanSupplier) Targets.create("realHistDatasetAdd",
+						       15, 42L);
+	fixedRecord = (BooleanSupplier) Targets.create("histogramRecord",
+							   0, 42L);
+	logRecord = (BooleanSupplier) Targets.create("histogramRecord",
+							 8, 42L);
+	decimatedDraw = (BooleanSupplier) Targets.create("decimatedDatasetDraw",
+							     300, size);
+    }
+
+    @Benchmark
+    public boolean queueStateDatasetAdd() {
+	return stateAdd.getAsBoolean();
+    }
+
+    @Benchmark
+    public boolean histDatasetAdd() {
+	return histAdd.getAsBoolean();
+    }
+
+    @Benchmark
+    public boolean realHistDatasetAdd() {
+	return realHistAdd.getAsBoolean();
+    }
+
+    @Benchmark
+    public boolean histogramRecord() {
+	return fixedRecord.getAsBoolean();
+    }
+
+    @Benchmark
+    public boolean logHistogramRecord() {
+	return logRecord.getAsBoolean();
+    }
+
+    @Benchmark
+    public boolean decimatedDatasetDraw() {
+	return decimatedDraw.getAsBoolean();
+    }
+}
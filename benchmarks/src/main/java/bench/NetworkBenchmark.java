@@ -0,0 +1,36 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/* Measures the cost of one QueueNetwork.simulateEvent() for ring
+   networks of increasing size, in which the calendar holds about one
+   pending event per station. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int stations;
+
+    @Param({"0.7"})
+    public double rho;
+
+    private LongSupplier event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+	event = (LongSupplier) Targets.create("networkEvent", stations, rho,
+					      20L * stations + 100000L, 42L);
+    }
+
+    @Benchmark
+    public long simulateEvent() {
+	return event.getAsLong();
+    }
+}
@@ -0,0 +1,46 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/* Measures the cost of one MarkovQueue.simulateStep() at several loads
+   and numbers of servers for both simulation engines. A servers value
+   of 0 means infinitely many servers; rho is the load per server, or
+   the mean number of customers in that case. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueueBenchmark {
+
+    @Param({"1", "8", "64", "0"})
+    public int servers;
+
+    @Param({"0.5", "0.9", "0.99"})
+    public double rho;
+
+    @Param({"false", "true"})
+    public boolean event;
+
+    @Param({"0.1"})
+    public double tick;
+
+    private IntSupplier step;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+	double lambda = servers < 1 ? rho : rho * servers;
+
+	step = (IntSupplier) Targets.create("queueStep", servers, tick, 
+					    lambda, 1.0, event, 
+					    100000L, 42L);
+    }
+
+    @Benchmark
+    public int simulateStep() {
+	return step.getAsInt();
+    }
+}
@@ -0,0 +1,128 @@
+package bench;
+
+import java.io.*;
+import java.util.*;
+
+/* This program compares two sets of benchmark results written by JMH
+   in CSV format (the -rf csv option) and exits with a nonzero status if
+   any benchmark present in both got slower by more than the tolerance.
+   It is meant to be run against a baseline recorded before a change:
+
+     java -cp benchmarks/target/benchmarks.jar bench.RegressionCheck \
+	  baseline.csv results.csv [tolerance]
+
+   The tolerance is a fraction of the baseline score (0.1 by default).
+   Scores are compared with their error margins taken into account, so
+   a difference within the measurement noise is not reported. */
+public class RegressionCheck {
+
+    public static void main(String[] args) throws IOException {
+	if (args.length < 2 || args.length > 3) {
+	    System.err.println("Usage: java bench.RegressionCheck " +
+			       "<baseline.csv> <results.csv> [tolerance]");
+	    System.exit(2);
+	}
+	double tolerance = args.length == 3 ? 
+	    Double.parseDouble(args[2]) : 0.1;
+	Map<String, String[]> baseline = read(args[0]);
+	Map<String, String[]> results = read(args[1]);
+	int regressions = 0;
+
+	for (Map.Entry<String, String[]> e : results.entrySet()) {
+	    String[] old = baseline.get(e.getKey());
+	    String[] cur = e.getValue();
+
+	    if (old == null) {
+		System.out.println("new         " + e.getKey());
+		continue;
+	    }
+
+	    double oldScore = Double.parseDouble(old[1]);
+	    double newScore = Double.parseDouble(cur[1]);
+	    double noise = error(old[2]) + error(cur[2]);
+	    boolean higherIsBetter = cur[0].equals("thrpt");
+
+	    /* Express the change so that a positive value is always a
+	       slowdown. */
+	    double worse = higherIsBetter ? 
+		oldScore - newScore : newScore - oldScore;
+	    boolean regressed = worse - noise > tolerance * oldScore;
+
+	    System.out.printf("%-11s %s: %.4g -> %.4g (%+.1f%%)%n",
+			      regressed ? "REGRESSION" : "ok",
+			      e.getKey(), oldScore, newScore,
+			      100 * (newScore - oldScore) / oldScore);
+	    if (regressed) {
+		regressions++;
+	    }
+	}
+
+	if (regressions > 0) {
+	    System.out.println(regressions + " benchmark(s) regressed");
+	    System.exit(1);
+	}
+    }
+
+    /* Parse an error column, which JMH leaves as NaN for single runs. */
+    private static double error(String s) {
+	double d = Double.parseDouble(s);
+	return Double.isNaN(d) ? 0 : d;
+    }
+
+    /* Read a JMH CSV result file into a map from the benchmark name and
+       parameters to its mode, score and score error. */
+    private static Map<String, String[]> read(String file) 
+	throws IOException {
+	Map<String, String[]> m = new LinkedHashMap<String, String[]>();
+	BufferedReader in = new BufferedReader(new FileReader(file));
+
+	try {
+	    String[] header = split(in.readLine());
+	    int name = indexOf(header, "Benchmark");
+	    int mode = indexOf(header, "Mode");
+	    int score = indexOf(header, "Score");
+	    int error = indexOf(header, "Score Error (99.9%)");
+	    String line;
+
+	    while ((line = in.readLine()) != null) {
+		String[] f = split(line);
+		StringBuilder key = new StringBuilder(f[name]);
+		int i;
+
+		for (i = 0; i < header.length; i++) {
+		    if (header[i].startsWith("Param: ") && i < f.length
+			&& f[i].length() > 0) {
+			key.append(' ').append(header[i].substring(7))
+			    .append('=').append(f[i]);
+		    }
+		}
+		m.put(key.toString(), 
+		      new String[] { f[mode], f[score], f[error] });
+	    }
+	} finally {
+	    in.close();
+	}
+	return m;
+    }
+
+    /* Split a line of JMH's CSV output, none of whose fields contain
+       commas, and remove the quotes around the fields. */
+    private static String[] split(String line) {
+	String[] f = line.split(",", -1);
+	int i;
+
+	for (i = 0; i < f.length; i++) {
+	    f[i] = f[i].replace("\"", "");
+	}
+	return f;
+    }
+
+    private static int indexOf(String[] header, String column) {
+	int i = Arrays.asList(header).indexOf(column);
+
+	if (i < 0) {
+	    throw new IllegalArgumentException("No column " + column);
+	}
+	return i;
+    }
+}
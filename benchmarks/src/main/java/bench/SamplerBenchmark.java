@@ -0,0 +1,41 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/* Measures the Poisson and exponential random value generators used by
+   MarkovQueue. The Poisson means span both the table and the PTRS
+   methods. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SamplerBenchmark {
+
+    @Param({"0.1", "1", "9", "50", "5000"})
+    public double mean;
+
+    private IntSupplier poisson;
+    private DoubleSupplier exponential;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+	poisson = (IntSupplier) Targets.create("genPoisson", mean, 42L);
+	exponential = (DoubleSupplier) Targets.create("genExponential", 
+						      1 / mean, 42L);
+    }
+
+    @Benchmark
+    public int genPoisson() {
+	return poisson.getAsInt();
+    }
+
+    @Benchmark
+    public double genExponential() {
+	return exponential.getAsDouble();
+    }
+}
@@ -0,0 +1,27 @@
+package bench;
+
+import java.lang.reflect.Method;
+
+/* This class looks up the operations provided by the default-package
+   Workloads class. */
+final class Targets {
+
+    private Targets() {
+    }
+
+    /* Call the named static factory method of Workloads with the
+       specified arguments and return the operation it creates. */
+    static Object create(String name, Object... args) {
+	try {
+	    for (Method m : Class.forName("Workloads").getMethods()) {
+		if (m.getName().equals(name) 
+		    && m.getParameterCount() == args.length) {
+		    return m.invoke(null, args);
+		}
+	    }
+	} catch (ReflectiveOperationException e) {
+	    throw new IllegalStateException("Cannot create " + name, e);
+	}
+	throw new IllegalArgumentException("No workload named " + name);
+    }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/* Measures the cost of one MarkovQueue.simulateStep() while its events
+   are recorded in a binary trace, for comparison with the cost measured
+   by QueueBenchmark without a trace. The trace is written to a
+   temporary directory that is deleted afterwards. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceBenchmark {
+
+    @Param({"1", "64"})
+    public int servers;
+
+    @Param({"0.9"})
+    public double rho;
+
+    @Param({"false", "true"})
+    public boolean event;
+
+    @Param({"0.1"})
+    public double tick;
+
+    private IntSupplier step;
+    private Closeable recorder;
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+	Object[] w;
+
+	dir = Files.createTempDirectory("trace").toFile();
+	w = (Object[]) Targets.create("tracedQueueStep", servers, tick, 
+				      rho * servers, 1.0, event, 100000L, 
+				      42L, new File(dir, "run").getPath());
+	step = (IntSupplier) w[0];
+	recorder = (Closeable) w[1];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+	recorder.close();
+	for (File f : dir.listFiles()) {
+	    f.delete();
+	}
+	dir.delete();
+    }
+
+    @Benchmark
+    public int simulateStep() {
+	return step.getAsInt();
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/* Measures the time taken by TransientSolver to compute the transient
+   distribution of an initially empty queue at several loads, numbers
+   of servers and times. A servers value of 0 means infinitely many
+   servers; rho is the load per server, or the mean number of customers
+   in that case. An M/M/infinity queue in heavy traffic, whose
+   distribution spreads over thousands of states and takes a long time
+   to converge, is measured separately. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransientBenchmark {
+
+    @State(Scope.Thread)
+    public static class Light {
+	@Param({"1", "64", "0"})
+	public int servers;
+
+	@Param({"0.9"})
+	public double rho;
+
+	@Param({"10", "1000"})
+	public double time;
+
+	DoubleSupplier solve;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+	    double lambda = servers < 1 ? rho : rho * servers;
+
+	    solve = (DoubleSupplier) Targets.create("transientMean", servers,
+						    lambda, 1.0, time);
+	}
+    }
+
+    @State(Scope.Thread)
+    public static class Heavy {
+	DoubleSupplier solve;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+	    solve = (DoubleSupplier) Targets.create("transientMean", 0,
+						    20000.0, 1.0, 100.0);
+	}
+    }
+
+    @Benchmark
+    public double transientMean(Light s) {
+	return s.solve.getAsDouble();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public double infiniteHeavyTraffic(Heavy s) {
+	return s.solve.getAsDouble();
+    }
+}